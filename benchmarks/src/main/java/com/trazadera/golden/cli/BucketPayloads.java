@@ -0,0 +1,75 @@
+package com.trazadera.golden.cli;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic golden list responses: a page whose content holds buckets of records, about 1 KB per bucket.
+ * Payloads are deterministic so runs are comparable.
+ */
+public class BucketPayloads {
+
+    private static final String[] CLASSIFICATIONS = { "MATCH", "POTENTIAL_MATCH", "NO_MATCH" };
+    private static final String[] NAMES = { "Ana", "Luis", "Marta", "Jorge", "Elena", "Pablo", "Lucia", "Diego" };
+    private static final String[] CITIES = { "Madrid", "Barcelona", "Valencia", "Sevilla", "Bilbao", "Zaragoza" };
+
+    private BucketPayloads() {
+    }
+
+    /**
+     * Parses a size such as <code>1KB</code>, <code>50MB</code> or <code>1GB</code>.
+     * @param size Size.
+     * @return Bytes.
+     */
+    public static long bytes(String size) {
+        String s = size.trim().toUpperCase();
+        if (s.endsWith("GB"))
+            return Long.parseLong(s.substring(0, s.length() - 2)) * 1024 * 1024 * 1024;
+        if (s.endsWith("MB"))
+            return Long.parseLong(s.substring(0, s.length() - 2)) * 1024 * 1024;
+        if (s.endsWith("KB"))
+            return Long.parseLong(s.substring(0, s.length() - 2)) * 1024;
+        return Long.parseLong(s);
+    }
+
+    /**
+     * Generates a page of buckets of at least indicated size.
+     * @param size Size, e.g. <code>1MB</code>.
+     * @return JSON document.
+     */
+    public static String page(String size) {
+        long target = bytes(size);
+        if (target > Integer.MAX_VALUE - 1024)
+            throw new IllegalArgumentException("payload too large: " + size);
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder((int) target + 1024);
+        sb.append("{\"content\":[");
+        int buckets = 0;
+        do {
+            if (buckets > 0)
+                sb.append(',');
+            bucket(sb, buckets++, random);
+        } while (sb.length() < target);
+        sb.append("],\"page\":0,\"size\":").append(buckets).append(",\"totalElements\":").append(buckets).append('}');
+        return sb.toString();
+    }
+
+    private static void bucket(StringBuilder sb, int n, Random random) {
+        sb.append("{\"id\":\"bucket-").append(n)
+                .append("\",\"entity\":\"customer\",\"index\":\"name-city\",\"classification\":\"")
+                .append(CLASSIFICATIONS[random.nextInt(CLASSIFICATIONS.length)])
+                .append("\",\"score\":").append(random.nextInt(1000) / 1000d)
+                .append(",\"updated\":\"2024-05-").append(10 + random.nextInt(20)).append("T10:15:30Z\",\"records\":[");
+        int records = 3 + random.nextInt(3);
+        for (int r = 0; r < records; r++) {
+            if (r > 0)
+                sb.append(',');
+            sb.append("{\"id\":\"record-").append(n).append('-').append(r)
+                    .append("\",\"table\":\"customers\",\"values\":{\"name\":\"").append(NAMES[random.nextInt(NAMES.length)])
+                    .append("\",\"city\":\"").append(CITIES[random.nextInt(CITIES.length)])
+                    .append("\",\"phone\":\"+34 6").append(10000000 + random.nextInt(89999999))
+                    .append("\",\"email\":\"user").append(random.nextInt(100000)).append("@example.com\"}}");
+        }
+        sb.append("]}");
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.trazadera.golden.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link GoldenParser#parseCommandLine(Context, String[])} on typical command lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({
+            "entity list",
+            "golden list --entity customer --classification MATCH --page 3 --page-size 100 --format table",
+            "golden show --entity customer --bucket b1,b2,b3 --filter $..id --format csv --cache --token t --url http://localhost"
+    })
+    public String commandLine;
+
+    private String[] args;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        args = GoldenParser.getInstance().tokenize(commandLine);
+    }
+
+    @Benchmark
+    public Context parseCommandLine() throws Exception {
+        Context ctx = new Context();
+        GoldenParser.getInstance().parseCommandLine(ctx, args);
+        return ctx;
+    }
+
+}
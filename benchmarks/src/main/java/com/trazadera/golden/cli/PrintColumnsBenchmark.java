@@ -0,0 +1,42 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks <code>PrintColumns.build</code> on a parsed golden list page, without filter and with a JSON path filter
+ * selecting the IDs of matched buckets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms16g", "-Xmx16g" })
+public class PrintColumnsBenchmark {
+
+    private static final String FILTER = "$.content[?(@.classification == 'MATCH')].id";
+
+    @Param({ "1KB", "1MB", "50MB", "500MB" })
+    public String size;
+
+    @Param({ "false", "true" })
+    public boolean filter;
+
+    private Object document;
+    private Context context;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        document = new Gson().fromJson(BucketPayloads.page(size), Object.class);
+        context = new Context().setAllPages(true).setOutputExpression(filter ?FILTER :null);
+    }
+
+    @Benchmark
+    public Object build() {
+        return GoldenPrinter.PrintColumns.build(context, document);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.trazadera.golden.cli;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link GoldenPrinter#formatOutput(Context, String)}: parsing a golden list page and rendering its
+ * buckets as JSON, table or CSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms16g", "-Xmx16g" })
+public class PrinterBenchmark {
+
+    @Param({ "1KB", "1MB", "50MB", "500MB" })
+    public String size;
+
+    @Param({ "JSON", "TABLE", "CSV" })
+    public Context.GoldenFormat format;
+
+    private String payload;
+    private Context context;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        payload = BucketPayloads.page(size);
+        // Rows are the buckets of the page, as printed with --all
+        context = new Context().setFormat(format).setAllPages(true);
+    }
+
+    @Benchmark
+    public String formatOutput() {
+        return GoldenPrinter.getInstance().formatOutput(context, payload);
+    }
+
+}
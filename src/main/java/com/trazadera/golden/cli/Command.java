@@ -3,6 +3,7 @@ package com.trazadera.golden.cli;
 import com.squareup.okhttp.Call;
 import org.apache.commons.cli.Options;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -32,6 +33,118 @@ public abstract class Command {
     public abstract Call execute(Context context) throws Exception;
 
 
+    // Pagination
+    // =================================================================================================================
+
+    /**
+     * Checks whether the subcommand in context is paginated, i.e. can be walked page by page with <code>--all</code>.
+     * @param context Context object.
+     * @return True if the subcommand is paginated. By default, false.
+     */
+    public boolean isPaginated(Context context) {
+        return false;
+    }
+
+    /**
+     * Retrieves the first page requested in context.
+     * @param context Context object.
+     * @return Page number.
+     */
+    public int getPage(Context context) {
+        return 0;
+    }
+
+    /**
+     * Retrieves the page size requested in context.
+     * @param context Context object.
+     * @return Page size.
+     */
+    public int getPageSize(Context context) {
+        return 0;
+    }
+
+    /**
+     * Executes indicated page of a paginated subcommand.
+     * @param context Context object.
+     * @param page Page number.
+     * @exception Exception If an error occurs during command execution.
+     */
+    public Call executePage(Context context, int page) throws Exception {
+        throw new IllegalArgumentException("subcommand '" + context.getSubcommand() + "' is not paginated");
+    }
+
+
+    // Cache
+    // =================================================================================================================
+
+    /**
+     * Retrieves for how long the result of the subcommand in context may be served from the response cache.
+     * @param context Context object.
+     * @return Seconds. Zero if the result must not be cached (default).
+     */
+    public long getCacheTtl(Context context) {
+        return 0;
+    }
+
+
+    // Fan-out
+    // =================================================================================================================
+
+    /**
+     * Retrieves the IDs requested in context for subcommands that accept several of them (e.g. show).
+     * @param context Context object.
+     * @return IDs, in request order. Empty if the subcommand does not accept several IDs.
+     * @exception IOException If the IDs cannot be read.
+     */
+    public List<String> getIds(Context context) throws IOException {
+        return List.of();
+    }
+
+    /**
+     * Executes the subcommand for one of the IDs returned by {@link #getIds(Context)}.
+     * @param context Context object.
+     * @param id ID.
+     * @exception Exception If an error occurs during command execution.
+     */
+    public Call executeId(Context context, String id) throws Exception {
+        throw new IllegalArgumentException("subcommand '" + context.getSubcommand() + "' does not accept several IDs");
+    }
+
+
+    // Self-driven subcommands
+    // =================================================================================================================
+
+    /**
+     * Checks whether the subcommand in context drives its own calls and output (e.g. exports) instead of returning a
+     * call to execute.
+     * @param context Context object.
+     * @return True if the subcommand must be run with {@link #run(Context)}. By default, false.
+     */
+    public boolean isRunnable(Context context) {
+        return false;
+    }
+
+    /**
+     * Checks whether the subcommand in context works on local data only, so the API client is not needed (nor a
+     * token or URL).
+     * @param context Context object.
+     * @return True if the subcommand does not call the API. By default, false.
+     */
+    public boolean isOffline(Context context) {
+        return false;
+    }
+
+    /**
+     * Runs a self-driven subcommand.
+     * @param context Context object, with the API client initialized.
+     * @return Exit code.
+     * @exception Exception If an error occurs during command execution.
+     */
+    public int run(Context context) throws Exception {
+        throw new IllegalArgumentException("subcommand '" + context.getSubcommand() + "' cannot be run");
+    }
+
+
     // Command information
     // =================================================================================================================
 
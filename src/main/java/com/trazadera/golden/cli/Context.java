@@ -3,7 +3,13 @@ package com.trazadera.golden.cli;
 import com.trazadera.golden.restclient.invoker.ApiClient;
 import org.apache.commons.cli.CommandLine;
 
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -14,8 +20,18 @@ public class Context {
     // Defaults
     private static final GoldenFormat DEFAULT_OUTPUT_FORMAT = GoldenFormat.JSON;
     private static final String DEFAULT_CSV_SEPARATOR = ";";
+    private static final int DEFAULT_PREFETCH = 4;
+    private static final int DEFAULT_PARALLELISM = 8;
+    private static final long DEFAULT_CACHE_SIZE_MB = 64;
+    private static final int DEFAULT_RETRIES = 3;
+    private static final double MIN_WATCH = 0.1;
+    private static final long DEFAULT_SORT_MEMORY_MB = 64;
+
+    // Context of the command run by the current thread (and the threads it starts), for the HTTP interceptors
+    private static final InheritableThreadLocal<Context> current = new InheritableThreadLocal<>();
 
     private ApiClient apiClient;
+    private BiFunction<String, String, ApiClient> apiClients;
     private Command command;
     private String subcommand;
     private CommandLine commandLine;
@@ -24,6 +40,50 @@ public class Context {
     private String csvSeparator = DEFAULT_CSV_SEPARATOR;
     private boolean tableBorder = true;
     private String outputExpression = null;
+    private boolean allPages = false;
+    private int prefetch = DEFAULT_PREFETCH;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private boolean cache = false;
+    private Long cacheTtl = null;
+    private long cacheSizeMb = DEFAULT_CACHE_SIZE_MB;
+    private InputStream in = System.in;
+    private PrintStream out = System.out;
+    private PrintStream err = System.err;
+    private Map<String, String> environment = System.getenv();
+    private Path workingDirectory = null;
+    private GoldenTimings timings = GoldenTimings.disabled();
+    private int retries = DEFAULT_RETRIES;
+    private Double rate = null;
+    private Integer maxInFlight = null;
+    private Double watch = null;
+    private List<String> groupBy = null;
+    private boolean count = false;
+    private List<String> sum = null;
+    private List<String> columns = null;
+    private List<String> sort = null;
+    private long sortMemoryMb = DEFAULT_SORT_MEMORY_MB;
+
+    /**
+     * Retrieves the context of the command run by the current thread.
+     * @return Context or null if none.
+     */
+    public static Context current() {
+        return current.get();
+    }
+
+    /**
+     * Makes this context the one of the current thread, and of the threads it starts, until {@link #detach()}.
+     */
+    public void attach() {
+        current.set(this);
+    }
+
+    /**
+     * Clears the context of the current thread.
+     */
+    public static void detach() {
+        current.remove();
+    }
 
     public GoldenFormat getFormat() {
         return format;
@@ -53,6 +113,24 @@ public class Context {
         return this;
     }
 
+    /**
+     * Builds an API client for another URL (e.g. to compare environments), with the same transport as the API client
+     * of the context.
+     * @param url API URL.
+     * @param token API token, or null for the token of the context.
+     * @return API client.
+     */
+    public ApiClient getApiClient(String url, String token) {
+        if (apiClients == null)
+            throw new IllegalStateException("API client not initialized");
+        return apiClients.apply(url, token);
+    }
+
+    public Context setApiClients(BiFunction<String, String, ApiClient> apiClients) {
+        this.apiClients = apiClients;
+        return this;
+    }
+
     public Command getCommand() {
         return command;
     }
@@ -121,6 +199,269 @@ public class Context {
         return this;
     }
 
+    public boolean isAllPages() {
+        return allPages;
+    }
+
+    public Context setAllPages(boolean allPages) {
+        this.allPages = allPages;
+        return this;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public Context setPrefetch(int prefetch) {
+        if (prefetch < 1)
+            throw new IllegalArgumentException("invalid prefetch '" + prefetch + "' (must be a positive integer)");
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Context setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("invalid parallelism '" + parallelism + "' (must be a positive integer)");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public boolean isCache() {
+        return cache;
+    }
+
+    public Context setCache(boolean cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    public Long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public Context setCacheTtl(Long cacheTtl) {
+        if (cacheTtl != null && cacheTtl < 0)
+            throw new IllegalArgumentException("invalid cache TTL '" + cacheTtl + "' (must be zero or a positive integer)");
+        this.cacheTtl = cacheTtl;
+        return this;
+    }
+
+    public long getCacheSizeMb() {
+        return cacheSizeMb;
+    }
+
+    public Context setCacheSizeMb(long cacheSizeMb) {
+        if (cacheSizeMb < 1)
+            throw new IllegalArgumentException("invalid cache size '" + cacheSizeMb + "' (must be a positive integer)");
+        this.cacheSizeMb = cacheSizeMb;
+        return this;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    public Context setOut(PrintStream out) {
+        this.out = out;
+        return this;
+    }
+
+    public PrintStream getErr() {
+        return err;
+    }
+
+    public Context setErr(PrintStream err) {
+        this.err = err;
+        return this;
+    }
+
+    /**
+     * Retrieves the standard input of the command line.
+     * @return Standard input.
+     * @exception IllegalArgumentException If the command line has no standard input (e.g. forwarded to a daemon).
+     */
+    public InputStream getIn() {
+        if (in == null)
+            throw new IllegalArgumentException("standard input is not available to this command line");
+        return in;
+    }
+
+    public boolean hasIn() {
+        return in != null;
+    }
+
+    public Context setIn(InputStream in) {
+        this.in = in;
+        return this;
+    }
+
+    /**
+     * Resolves a path given in the command line against the working directory of the process that issued it (which
+     * differs from the current process in daemon mode).
+     * @param path Path.
+     * @return Resolved path.
+     */
+    public Path resolvePath(String path) {
+        return workingDirectory == null ?Path.of(path) :workingDirectory.resolve(path);
+    }
+
+    public Path getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    public Context setWorkingDirectory(Path workingDirectory) {
+        this.workingDirectory = workingDirectory;
+        return this;
+    }
+
+    /**
+     * Retrieves an environment variable of the process that issued the command line (which differs from the current
+     * process in daemon mode).
+     * @param name Variable name.
+     * @return Value or null if not defined.
+     */
+    public String getEnv(String name) {
+        return environment.get(name);
+    }
+
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    public Context setEnvironment(Map<String, String> environment) {
+        this.environment = environment;
+        return this;
+    }
+
+    public GoldenTimings getTimings() {
+        return timings;
+    }
+
+    public Context setTimings(GoldenTimings timings) {
+        this.timings = timings;
+        return this;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public Context setRetries(int retries) {
+        if (retries < 0)
+            throw new IllegalArgumentException("invalid retries '" + retries + "' (must be zero or a positive integer)");
+        this.retries = retries;
+        return this;
+    }
+
+    public Double getRate() {
+        return rate;
+    }
+
+    public Context setRate(Double rate) {
+        if (rate != null && (rate < 0 || rate.isNaN() || rate.isInfinite()))
+            throw new IllegalArgumentException("invalid rate '" + rate + "' (must be zero or a positive number)");
+        this.rate = rate;
+        return this;
+    }
+
+    public Integer getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Context setMaxInFlight(Integer maxInFlight) {
+        if (maxInFlight != null && maxInFlight < 0)
+            throw new IllegalArgumentException("invalid max in flight '" + maxInFlight + "' (must be zero or a positive integer)");
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    public Double getWatch() {
+        return watch;
+    }
+
+    public Context setWatch(Double watch) {
+        if (watch != null && (watch < MIN_WATCH || watch.isNaN() || watch.isInfinite()))
+            throw new IllegalArgumentException("invalid watch '" + watch + "' (must be at least " + MIN_WATCH + " seconds)");
+        this.watch = watch;
+        return this;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public Context setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+        return this;
+    }
+
+    public boolean isCount() {
+        return count;
+    }
+
+    public Context setCount(boolean count) {
+        this.count = count;
+        return this;
+    }
+
+    public List<String> getSum() {
+        return sum;
+    }
+
+    public Context setSum(List<String> sum) {
+        this.sum = sum;
+        return this;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public Context setColumns(List<String> columns) {
+        this.columns = columns;
+        return this;
+    }
+
+    public List<String> getSort() {
+        return sort;
+    }
+
+    public Context setSort(List<String> sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    public long getSortMemoryMb() {
+        return sortMemoryMb;
+    }
+
+    public Context setSortMemoryMb(long sortMemoryMb) {
+        if (sortMemoryMb < 1)
+            throw new IllegalArgumentException("invalid sort memory '" + sortMemoryMb + "' (must be a positive integer)");
+        this.sortMemoryMb = sortMemoryMb;
+        return this;
+    }
+
+    /**
+     * @return True if rows are aggregated (<code>--group-by</code>, <code>--count</code> or <code>--sum</code>).
+     */
+    public boolean isAggregating() {
+        return groupBy != null || count || sum != null;
+    }
+
+    /**
+     * @return True if the rows of a paginated result are the elements of its list (e.g. <code>content</code>) rather
+     * than the page itself: with <code>--all</code>, and with <code>--watch</code>, aggregations,
+     * <code>--columns</code> or <code>--sort</code> on paginated subcommands.
+     */
+    public boolean isListingRows() {
+        return allPages || ((watch != null || isAggregating() || columns != null || sort != null) && (command == null || command.isPaginated(this)));
+    }
+
     public enum GoldenFormat {
         TABLE,
         JSON,
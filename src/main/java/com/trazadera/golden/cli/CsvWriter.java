@@ -0,0 +1,127 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes CSV records as defined by RFC 4180: records end with CRLF and fields containing the separator, quotes or line
+ * breaks are enclosed in quotes, doubling any embedded quote. Records are written as they come, nothing is buffered
+ * besides the underlying writer.
+ */
+public class CsvWriter {
+
+    private static final String LINE_BREAK = "\r\n";
+    private static final char QUOTE = '"';
+
+    // Largest integer that a double represents exactly
+    private static final double MAX_EXACT_INTEGER = 9007199254740992d;
+
+    private final Writer writer;
+    private final String separator;
+    private final Gson gson = new Gson();
+
+
+    // Builders
+    // =================================================================================================================
+
+    /**
+     * Creates a CSV writer.
+     * @param writer Destination.
+     * @param separator Field separator.
+     */
+    public CsvWriter(Writer writer, String separator) {
+        if (writer == null)
+            throw new IllegalArgumentException("Writer cannot be null");
+        if (separator == null || separator.isEmpty())
+            throw new IllegalArgumentException("Separator cannot be null or empty");
+        this.writer = writer;
+        this.separator = separator;
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Writes a record.
+     * @param values Field values, formatted with {@link #format(Object)}.
+     * @exception IOException If the record cannot be written.
+     */
+    public void writeRecord(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0)
+                writer.write(separator);
+            writer.write(escape(format(values.get(i))));
+        }
+        writer.write(LINE_BREAK);
+    }
+
+    /**
+     * Formats a value as a field. Nulls are empty, integral numbers are printed without decimals and lists or objects
+     * are printed as compact JSON.
+     * @param value Value.
+     * @return Field text (not escaped).
+     */
+    public String format(Object value) {
+        if (value == null)
+            return "";
+        if (value instanceof Double d && d == Math.rint(d) && Math.abs(d) <= MAX_EXACT_INTEGER)
+            return Long.toString(d.longValue());
+        if (value instanceof Map || value instanceof List)
+            return gson.toJson(value);
+        return value.toString();
+    }
+
+    /**
+     * Escapes a field, enclosing it in quotes when required.
+     * @param field Field text.
+     * @return Escaped field.
+     */
+    public String escape(String field) {
+        boolean quote = field.contains(separator) || field.indexOf(QUOTE) >= 0
+                || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+        if (!quote)
+            return field;
+        StringBuilder sb = new StringBuilder(field.length() + 2).append(QUOTE);
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == QUOTE)
+                sb.append(QUOTE);
+            sb.append(c);
+        }
+        return sb.append(QUOTE).toString();
+    }
+
+    /**
+     * Flattens nested objects into dotted keys, e.g. <code>{"a": {"b": 1}}</code> becomes <code>{"a.b": 1}</code>.
+     * Lists are kept as values.
+     * @param row Row.
+     * @return Flattened row, in the original key order.
+     */
+    public static Map<String, Object> flatten(Map<?, ?> row) {
+        Map<String, Object> flat = new LinkedHashMap<>();
+        flatten(null, row, flat);
+        return flat;
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private static void flatten(String prefix, Map<?, ?> map, Map<String, Object> flat) {
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            String key = prefix == null ?String.valueOf(e.getKey()) :prefix + "." + e.getKey();
+            if (e.getValue() instanceof Map<?, ?> nested && !nested.isEmpty()) {
+                flatten(key, nested, flat);
+            } else {
+                flat.put(key, e.getValue());
+            }
+        }
+    }
+
+}
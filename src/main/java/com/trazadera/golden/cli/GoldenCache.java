@@ -0,0 +1,266 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk HTTP response cache, installed as an interceptor of the API client. Only GET calls executed through
+ * {@link #execute(Call, long, long)} are cached. Entries are keyed by URL and token identity, bodies are stored
+ * compressed, stale entries are revalidated with <code>If-None-Match</code> / <code>If-Modified-Since</code> and the
+ * least recently used entries are evicted once the cache exceeds its size.
+ */
+public class GoldenCache implements Interceptor {
+
+    private static final String BODY_SUFFIX = ".gz";
+    private static final String META_SUFFIX = ".meta";
+    private static final String META_ETAG = "etag";
+    private static final String META_LAST_MODIFIED = "last-modified";
+    private static final String META_CONTENT_TYPE = "content-type";
+    private static final String META_STORED = "stored";
+
+    // Cache policy of the call being executed by the current thread (null when the call is not cached)
+    private static final ThreadLocal<Policy> policy = new ThreadLocal<>();
+
+    private final Path directory;
+
+
+    // Builders
+    // =================================================================================================================
+
+    /**
+     * Creates a cache.
+     * @param directory Cache directory. Created when the first entry is stored.
+     */
+    public GoldenCache(Path directory) {
+        if (directory == null)
+            throw new IllegalArgumentException("Cache directory cannot be null");
+        this.directory = directory;
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Executes a call allowing its response to be served from, and stored in, the cache.
+     * @param call Call.
+     * @param ttlSeconds Seconds a stored response is served without revalidation.
+     * @param maxBytes Maximum size of the cache in bytes.
+     * @return Response.
+     * @exception IOException If the call fails.
+     */
+    public Response execute(Call call, long ttlSeconds, long maxBytes) throws IOException {
+        policy.set(new Policy(ttlSeconds * 1000, maxBytes));
+        try {
+            return call.execute();
+        } finally {
+            policy.remove();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Policy p = policy.get();
+        if (p == null || !"GET".equals(request.method()))
+            return chain.proceed(request);
+
+        String key = key(request);
+        Path body = directory.resolve(key + BODY_SUFFIX);
+        Path meta = directory.resolve(key + META_SUFFIX);
+        Properties entry = readMeta(meta);
+        long now = System.currentTimeMillis();
+
+        // Fresh entry
+        if (entry != null && now - Long.parseLong(entry.getProperty(META_STORED, "0")) < p.ttlMillis) {
+            Response cached = cachedResponse(request, entry, body);
+            if (cached != null)
+                return cached;
+            entry = null;
+        }
+
+        // Stale entry: revalidate
+        Request.Builder builder = request.newBuilder();
+        if (entry != null && entry.getProperty(META_ETAG) != null)
+            builder.header("If-None-Match", entry.getProperty(META_ETAG));
+        if (entry != null && entry.getProperty(META_LAST_MODIFIED) != null)
+            builder.header("If-Modified-Since", entry.getProperty(META_LAST_MODIFIED));
+        Response response = chain.proceed(builder.build());
+        if (response.code() == 304 && entry != null) {
+            response.body().close();
+            entry.setProperty(META_STORED, Long.toString(now));
+            writeMeta(meta, entry);
+            Response cached = cachedResponse(request, entry, body);
+            if (cached != null)
+                return cached;
+            return chain.proceed(request); // entry vanished, e.g. evicted by another process
+        }
+        if (!response.isSuccessful())
+            return response;
+
+        // Store
+        MediaType contentType = response.body().contentType();
+        byte[] bytes = response.body().bytes();
+        entry = new Properties();
+        entry.setProperty(META_STORED, Long.toString(now));
+        if (contentType != null)
+            entry.setProperty(META_CONTENT_TYPE, contentType.toString());
+        if (response.header("ETag") != null)
+            entry.setProperty(META_ETAG, response.header("ETag"));
+        if (response.header("Last-Modified") != null)
+            entry.setProperty(META_LAST_MODIFIED, response.header("Last-Modified"));
+        store(body, meta, bytes, entry);
+        evict(p.maxBytes);
+        return response.newBuilder().body(ResponseBody.create(contentType, bytes)).build();
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    /**
+     * Builds the cache key of a request: a hash of its URL and of its credentials, so tokens never share entries.
+     */
+    private String key(Request request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.urlString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            String authorization = request.header("Authorization");
+            if (authorization != null)
+                digest.update(authorization.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Response cachedResponse(Request request, Properties entry, Path body) throws IOException {
+        byte[] bytes;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(body))) {
+            bytes = in.readAllBytes();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        Files.setLastModifiedTime(body, FileTime.fromMillis(System.currentTimeMillis())); // recently used
+        String contentType = entry.getProperty(META_CONTENT_TYPE);
+        Response.Builder builder = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(contentType == null ?null :MediaType.parse(contentType), bytes));
+        if (contentType != null)
+            builder.header("Content-Type", contentType);
+        return builder.build();
+    }
+
+    private Properties readMeta(Path meta) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(meta)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return properties;
+    }
+
+    private void writeMeta(Path meta, Properties entry) throws IOException {
+        Path tmp = Files.createTempFile(directory, "meta", ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp)) {
+            entry.store(out, null);
+        }
+        move(tmp, meta);
+    }
+
+    // Files are written aside and moved into place, so concurrent processes never read a partial entry
+    private void store(Path body, Path meta, byte[] bytes, Properties entry) throws IOException {
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, "body", ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+            out.write(bytes);
+        }
+        move(tmp, body);
+        writeMeta(meta, entry);
+    }
+
+    private void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Evicts least recently used entries until the cache size does not exceed indicated maximum.
+     */
+    private void evict(long maxBytes) throws IOException {
+        List<Path> bodies = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path f : files.filter(f -> f.getFileName().toString().endsWith(BODY_SUFFIX)).toList()) {
+                bodies.add(f);
+                total += size(f);
+            }
+        }
+        if (total <= maxBytes)
+            return;
+        bodies.sort(Comparator.comparingLong(this::lastModified));
+        for (Path f : bodies) {
+            if (total <= maxBytes)
+                break;
+            total -= size(f);
+            String name = f.getFileName().toString();
+            Files.deleteIfExists(f);
+            Files.deleteIfExists(f.resolveSibling(name.substring(0, name.length() - BODY_SUFFIX.length()) + META_SUFFIX));
+        }
+    }
+
+    private long size(Path f) {
+        try {
+            return Files.size(f);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long lastModified(Path f) {
+        try {
+            return Files.getLastModifiedTime(f).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private record Policy(long ttlMillis, long maxBytes) { }
+
+}
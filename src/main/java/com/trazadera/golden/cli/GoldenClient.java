@@ -3,18 +3,34 @@ package com.trazadera.golden.cli;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.squareup.okhttp.Call;
+import com.squareup.okhttp.ConnectionPool;
 import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
 import com.trazadera.golden.restclient.invoker.ApiClient;
 import com.trazadera.golden.restclient.invoker.ApiException;
 import org.apache.commons.cli.*;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.lang.System.exit;
 
@@ -29,7 +45,34 @@ public class GoldenClient {
 
     private static final String VARIABLE_TOKEN = "GOLDEN_TOKEN";
     private static final String VARIABLE_URL = "GOLDEN_URL";
+    private static final String VARIABLE_RATE = "GOLDEN_RATE";
+    private static final String VARIABLE_MAX_IN_FLIGHT = "GOLDEN_MAX_IN_FLIGHT";
     private static final String GOLDEN_FILE = ".golden";
+    private static final String CACHE_DIRECTORY = ".golden-cache";
+    private static final String SOCKET_FILE = ".golden.sock";
+    private static final String VARIABLE_SOCKET = "GOLDEN_SOCKET";
+    // Global options of a batch that are not passed on to its command lines
+    private static final Set<String> BATCH_OWN_OPTIONS = Set.of("batch", "parallel", "daemon", "socket", "interactive");
+
+    // Connections are kept alive between commands of an interactive session
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MS = 30 * 60 * 1000L;
+
+    // API clients, kept for the life of the process by token, URL and limits. Each one has its own limiter, configured
+    // when it is built, so a command line with other limits does not change those of the commands already running.
+    // All of them share the connection pool
+    private final Map<ClientKey, ApiClient> apiClients = new HashMap<>();
+    private final ConnectionPool connectionPool = new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MS);
+
+    // Response cache, used by commands that run with --cache
+    private final GoldenCache cache = new GoldenCache(Path.of(System.getProperty("user.home"), CACHE_DIRECTORY));
+
+    // The first command of the process also accounts for the JVM startup in its timings
+    private final AtomicBoolean firstCommand = new AtomicBoolean(true);
+
+    // Golden file, reloaded only when modified
+    private Properties goldenFile = new Properties();
+    private long goldenFileModified = 0;
 
 
     // Builders
@@ -47,33 +90,69 @@ public class GoldenClient {
      * @return Exit code
      */
     public int execute(String[] args) {
+        return execute(new Context(), args);
+    }
+
+    /**
+     * Executes indicated command line using indicated context. Output is written to the context streams.
+     * This method is thread safe, several command lines can be executed at once with their own contexts.
+     * @param ctx Context object.
+     * @param args Command line
+     * @return Exit code
+     */
+    public int execute(Context ctx, String[] args) {
+        long started = System.nanoTime();
+        boolean first = firstCommand.compareAndSet(true, false);
+
         // Execute
         int exitCode = EXIT_CODE_OK;
-        Context ctx = new Context();
         try {
             // Parse command line arguments
             GoldenParser.getInstance().parseCommandLine(ctx, args);
+            ctx.attach();
+            GoldenTimings timings = ctx.getTimings();
+            if (first)
+                timings.jvmStartup(started);
+            timings.span(GoldenTimings.PARSE, started);
 
             // Execute global actions
             CommandLine cl = ctx.getGlobalCommandLine();
             if (cl==null || cl.hasOption("help")) {
                 help(ctx, null);
             } else if (cl.hasOption("version")) {
-                version();
+                version(ctx);
+            } else if (cl.hasOption("batch")) {
+                exitCode = executeBatch(ctx);
+            } else if (cl.hasOption("daemon")) {
+                exitCode = executeDaemon(ctx);
             }
 
             // Execute command and print result
             else {
                 Command cmd = ctx.getCommand();
-                initializeApi(ctx);
-                Call call = cmd.execute(ctx);
-                if (call == null)
-                    throw new IllegalArgumentException("invalid call");
-                Response response = call.execute();
-                if (response.isSuccessful())  {
-                    printResult(ctx, response);
+                long t = timings.now();
+                if (!cmd.isOffline(ctx))
+                    initializeApi(ctx);
+                timings.span(GoldenTimings.API, t);
+                List<String> ids = cmd.getIds(ctx);
+                if (ctx.getWatch() != null) {
+                    exitCode = executeWatch(ctx, ids);
+                } else if (cmd.isRunnable(ctx)) {
+                    exitCode = cmd.run(ctx);
+                } else if (ctx.isAllPages()) {
+                    exitCode = executeAllPages(ctx);
+                } else if (ids.size() > 1) {
+                    exitCode = executeIds(ctx, ids);
                 } else {
-                    exitCode = printError(ctx, response, null);
+                    Call call = ids.size() == 1 ?cmd.executeId(ctx, ids.get(0)) :cmd.execute(ctx);
+                    if (call == null)
+                        throw new IllegalArgumentException("invalid call");
+                    Response response = executeCall(ctx, call);
+                    if (response.isSuccessful()) {
+                        exitCode = printResult(ctx, response);
+                    } else {
+                        exitCode = printError(ctx, response, null);
+                    }
                 }
             }
         } catch (IllegalArgumentException | ParseException e) {
@@ -82,27 +161,41 @@ public class GoldenClient {
         } catch (Exception e) {
             exitCode = printError(ctx, null, e);
         }
+        ctx.getOut().flush();
+        ctx.getTimings().finish(ctx.getErr(), started);
+        Context.detach();
         return exitCode;
     }
 
     /**
-     * Main method. Allows for interactive usage if providing <code>--interactive</code>.
+     * Main method. Allows for interactive usage if providing <code>--interactive</code>. Command lines with
+     * <code>--socket</code> (or with environment variable <code>GOLDEN_SOCKET</code>) are forwarded to a daemon.
      * @param args
      */
     public static void main(String[] args) {
         boolean interactive = args.length == 1 && args[0] != null && args[0].trim().equalsIgnoreCase("--interactive");
+        if (!interactive && forwardable(args))
+            exit(forward(args));
         GoldenClient goldenClient = new GoldenClient();
         if (interactive) {
-            goldenClient.version();
+            goldenClient.version(new Context());
             System.out.println("Type 'exit' to quit");
             // System.console does not work from within IDE
             Scanner scanner = new Scanner(System.in);
             while (true) {
                 System.out.print("golden> ");
+                if (!scanner.hasNextLine()) break;
                 String line = scanner.nextLine().trim();
                 if (line==null || line.length()==0) continue;
                 if (line.toLowerCase().trim().equals("exit")) break;
-                goldenClient.execute(line.split(" "));
+                String[] lineArgs;
+                try {
+                    lineArgs = GoldenParser.getInstance().tokenize(line);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Error: " + e.getMessage());
+                    continue;
+                }
+                goldenClient.execute(lineArgs);
             }
         } else {
             int exitCode = goldenClient.execute(args);
@@ -115,28 +208,92 @@ public class GoldenClient {
     // =================================================================================================================
 
     /**
-     * Initializes the API: retrieves API token and URL using any of the available methods and initializes the Golden API client.
-     * @param context Context object.
+     * Checks whether a command line has to be forwarded to a daemon: it indicates a socket (option or environment
+     * variable) and does not start the daemon itself.
+     * @param args Command line.
+     * @return True if the command line has to be forwarded.
      */
-    private void initializeApi(Context context) {
-        CommandLine cl = context.getGlobalCommandLine();
+    private static boolean forwardable(String[] args) {
+        List<String> list = Arrays.asList(args);
+        if (list.contains("--daemon"))
+            return false;
+        return list.contains("--socket") || System.getenv(VARIABLE_SOCKET) != null;
+    }
 
-        // Locate golden file and load properties (if exists)
-        Path path = Path.of(System.getProperty("user.home"), GOLDEN_FILE);
-        Properties goldenFile = new Properties();
-        File f = path.toFile();
-        if (f.exists() && f.canRead()) {
-            try (BufferedReader in = Files.newBufferedReader(path)) {
-                goldenFile.load(in);
-            } catch (IOException e) {
-                throw new IllegalStateException("error reading golden file: " + e.getMessage());
+    /**
+     * Forwards a command line to a daemon. When the socket comes from the environment and there is no daemon
+     * listening, the command line is executed by this process instead.
+     * @param args Command line.
+     * @return Exit code.
+     */
+    private static int forward(String[] args) {
+        List<String> forwarded = new ArrayList<>();
+        String socket = System.getenv(VARIABLE_SOCKET);
+        boolean explicit = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--socket") && i + 1 < args.length) {
+                socket = args[++i];
+                explicit = true;
+            } else {
+                forwarded.add(args[i]);
             }
         }
+        try {
+            return GoldenDaemon.forward(socketPath(socket), forwarded.toArray(new String[0]), System.out, System.err);
+        } catch (IOException e) {
+            if (!explicit)
+                return new GoldenClient().execute(forwarded.toArray(new String[0]));
+            System.err.println("Error: cannot reach daemon at '" + socket + "': " + e.getMessage());
+            return EXIT_CODE_ERROR_GENERIC;
+        }
+    }
+
+    /**
+     * Resolves the daemon socket path.
+     * @param socket Indicated path, or null for the default one.
+     * @return Socket path.
+     */
+    private static Path socketPath(String socket) {
+        return socket != null ?Path.of(socket) :Path.of(System.getProperty("user.home"), SOCKET_FILE);
+    }
+
+    /**
+     * Runs as a daemon until the process is terminated, executing the command lines forwarded to the socket.
+     * @param ctx Context object.
+     * @return Exit code.
+     * @exception IOException If the socket cannot be bound.
+     */
+    private int executeDaemon(Context ctx) throws IOException {
+        Path socket = socketPath(ctx.getGlobalCommandLine().getOptionValue("socket"));
+        GoldenCommands.getInstance().getCommands(); // load every command upfront
+        GoldenDaemon daemon = new GoldenDaemon(this, socket);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+                Files.deleteIfExists(socket);
+            } catch (IOException e) {
+                // ignored
+            }
+        }));
+        ctx.getOut().println("Golden daemon listening on " + socket);
+        ctx.getOut().flush();
+        daemon.serve();
+        return EXIT_CODE_OK;
+    }
+
+    /**
+     * Initializes the API: retrieves API token and URL using any of the available methods and initializes the Golden API client.
+     * Clients are kept by token, URL and limits, so they (and their connection pool) are reused across commands.
+     * @param context Context object.
+     */
+    private synchronized void initializeApi(Context context) {
+        CommandLine cl = context.getGlobalCommandLine();
+        Properties goldenFile = loadGoldenFile();
 
         // API token
         String token = cl.getOptionValue("token");
         if (token == null)
-            token = System.getenv(VARIABLE_TOKEN);
+            token = context.getEnv(VARIABLE_TOKEN);
         if (token == null)
             token = goldenFile.getProperty(VARIABLE_TOKEN);
         if (token == null || token.isEmpty())
@@ -145,17 +302,355 @@ public class GoldenClient {
         // API URL
         String url = cl.getOptionValue("url");
         if (url == null)
-            url = System.getenv(VARIABLE_URL);
+            url = context.getEnv(VARIABLE_URL);
         if (url == null)
             url = goldenFile.getProperty(VARIABLE_URL);
         if (url == null || url.isEmpty())
             throw new IllegalArgumentException("missing URL, use --url or set environment variable GOLDEN_URL or create a properties file $HOME/.golden with GOLDEN_URL property.");
 
-        // Initialize API client
-        ApiClient apiClient = new ApiClient();
-        apiClient.setBasePath(url);
-        apiClient.setAccessToken(token);
+        // Limits
+        double rate = context.getRate() != null ?context.getRate() :parseSetting(context, goldenFile, VARIABLE_RATE);
+        Integer maxInFlight = context.getMaxInFlight();
+        if (maxInFlight == null) {
+            double value = parseSetting(context, goldenFile, VARIABLE_MAX_IN_FLIGHT);
+            if (value != Math.rint(value))
+                throw new IllegalArgumentException("invalid " + VARIABLE_MAX_IN_FLIGHT + " '" + value + "' (must be an integer)");
+            maxInFlight = (int) value;
+        }
+
+        // API client (built the first time for this token, URL and limits)
+        ApiClient apiClient = apiClients.computeIfAbsent(new ClientKey(token, url, rate, maxInFlight), this::newApiClient);
         context.setApiClient(apiClient);
+        String sharedToken = token;
+        context.setApiClients((u, t) -> {
+            ApiClient client = new ApiClient().setHttpClient(apiClient.getHttpClient());
+            client.setBasePath(u);
+            client.setAccessToken(t != null ?t :sharedToken);
+            return client;
+        });
+    }
+
+    private ApiClient newApiClient(ClientKey key) {
+        GoldenLimiter limiter = new GoldenLimiter();
+        limiter.configure(key.rate(), key.maxInFlight());
+        ApiClient client = new ApiClient();
+        client.setBasePath(key.url());
+        client.setAccessToken(key.token());
+        client.getHttpClient().setConnectionPool(connectionPool);
+        // Retries wrap everything, cache hits are neither limited nor timed as HTTP calls
+        client.getHttpClient().interceptors().add(new GoldenTransport());
+        client.getHttpClient().interceptors().add(new GoldenWatch());
+        client.getHttpClient().interceptors().add(cache);
+        client.getHttpClient().interceptors().add(limiter);
+        client.getHttpClient().interceptors().add(new GoldenTimings.HttpInterceptor());
+        return client;
+    }
+
+    private record ClientKey(String token, String url, double rate, int maxInFlight) { }
+
+    /**
+     * Reads a numeric setting from the environment or the golden file.
+     * @return Value, 0 if not set.
+     */
+    private double parseSetting(Context context, Properties goldenFile, String variable) {
+        String value = context.getEnv(variable);
+        if (value == null)
+            value = goldenFile.getProperty(variable);
+        if (value == null || value.isBlank())
+            return 0;
+        try {
+            double d = Double.parseDouble(value.trim());
+            if (d < 0 || Double.isNaN(d) || Double.isInfinite(d))
+                throw new NumberFormatException();
+            return d;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + variable + " '" + value + "' (must be zero or a positive number)");
+        }
+    }
+
+    /**
+     * Locates golden file and loads properties (if exists). The file is only read again when it has been modified.
+     * @return Golden file properties. Empty if the file does not exist.
+     */
+    private Properties loadGoldenFile() {
+        Path path = Path.of(System.getProperty("user.home"), GOLDEN_FILE);
+        File f = path.toFile();
+        long modified = f.exists() && f.canRead() ?f.lastModified() :0;
+        if (modified != goldenFileModified) {
+            Properties properties = new Properties();
+            if (modified != 0) {
+                try (BufferedReader in = Files.newBufferedReader(path)) {
+                    properties.load(in);
+                } catch (IOException e) {
+                    throw new IllegalStateException("error reading golden file: " + e.getMessage());
+                }
+            }
+            goldenFile = properties;
+            goldenFileModified = modified;
+        }
+        return goldenFile;
+    }
+
+    /**
+     * Executes a call, through the response cache when running with <code>--cache</code> and the command result may be
+     * cached.
+     * @param ctx Context object.
+     * @param call Call.
+     * @return Response.
+     * @exception IOException If the call fails.
+     */
+    private Response executeCall(Context ctx, Call call) throws IOException {
+        if (ctx.isCache()) {
+            long ttl = ctx.getCacheTtl() != null ?ctx.getCacheTtl() :ctx.getCommand().getCacheTtl(ctx);
+            if (ttl > 0 || ctx.getCacheTtl() != null)
+                return cache.execute(call, ttl, ctx.getCacheSizeMb() * 1024 * 1024);
+        }
+        return call.execute();
+    }
+
+    /**
+     * Executes a batch of command lines, one per line of the file indicated by <code>--batch</code> (or standard input
+     * with <code>-</code>). Blank lines and lines starting with <code>#</code> are ignored. Command lines run
+     * concurrently on virtual threads, at most <code>--parallel</code> at once, and their output is printed in order.
+     * Global options given along with <code>--batch</code> apply to every command line that does not override them.
+     * @param ctx Context object.
+     * @return Exit code: the first non-zero exit code of the batch, if any.
+     * @exception Exception If the batch cannot be read.
+     */
+    private int executeBatch(Context ctx) throws Exception {
+        String source = ctx.getGlobalCommandLine().getOptionValue("batch");
+        List<String> lines;
+        boolean stdin = source == null || source.equals("-");
+        if (stdin) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(ctx.getIn(), StandardCharsets.UTF_8));
+            lines = in.lines().toList();
+        } else {
+            try {
+                lines = Files.readAllLines(ctx.resolvePath(source));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot read batch file '" + source + "': " + e.getMessage());
+            }
+        }
+
+        // Global options shared by all the command lines, taken from the parsed command line rather than from the
+        // arguments, where the optional file of --batch makes the next argument ambiguous
+        List<String> shared = new ArrayList<>();
+        for (Option option : ctx.getGlobalCommandLine().getOptions()) {
+            if (BATCH_OWN_OPTIONS.contains(option.getLongOpt()))
+                continue;
+            shared.add("--" + option.getLongOpt());
+            if (option.getValues() != null)
+                shared.addAll(List.of(option.getValues()));
+        }
+
+        // Run every command line with its own context and captured output
+        Semaphore permits = new Semaphore(ctx.getParallelism());
+        List<Future<BatchResult>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String line : lines) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#"))
+                    continue;
+                List<String> lineArgs = new ArrayList<>(List.of(GoldenParser.getInstance().tokenize(trimmed)));
+                lineArgs.addAll(shared);
+                results.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return executeCaptured(ctx, lineArgs.toArray(new String[0]), stdin);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            // Print in order as results become available
+            int exitCode = EXIT_CODE_OK;
+            for (Future<BatchResult> future : results) {
+                BatchResult result = future.get();
+                ctx.getOut().write(result.out);
+                ctx.getOut().flush();
+                ctx.getErr().write(result.err);
+                ctx.getErr().flush();
+                if (exitCode == EXIT_CODE_OK)
+                    exitCode = result.exitCode;
+            }
+            return exitCode;
+        }
+    }
+
+    /**
+     * Executes a command line capturing its output.
+     * @param parent Context of the batch.
+     * @param args Command line.
+     * @param stdin Whether the batch was read from standard input, which is then not available to the command line.
+     * @return Exit code and output.
+     */
+    private BatchResult executeCaptured(Context parent, String[] args, boolean stdin) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Context ctx = new Context()
+                .setEnvironment(parent.getEnvironment())
+                .setWorkingDirectory(parent.getWorkingDirectory())
+                .setIn(stdin || !parent.hasIn() ?null :parent.getIn())
+                .setOut(new PrintStream(out, false, StandardCharsets.UTF_8))
+                .setErr(new PrintStream(err, false, StandardCharsets.UTF_8));
+        int exitCode = execute(ctx, args);
+        ctx.getErr().flush();
+        return new BatchResult(exitCode, out.toByteArray(), err.toByteArray());
+    }
+
+    private record BatchResult(int exitCode, byte[] out, byte[] err) { }
+
+    /**
+     * Walks every page of a paginated subcommand. Keeps up to <code>--prefetch</code> pages in flight and prints their
+     * rows in page order as they arrive. Stops at the first page that is shorter than the page size. A failed page is
+     * reported to the error output and ends the walk: the rows printed so far are flushed, but the output is not
+     * completed ({@link GoldenPrinter.Output#abort()}).
+     * @param ctx Context object.
+     * @return Exit code.
+     * @exception Exception If a page cannot be retrieved.
+     */
+    private int executeAllPages(Context ctx) throws Exception {
+        Command cmd = ctx.getCommand();
+        if (!cmd.isPaginated(ctx))
+            throw new IllegalArgumentException("subcommand '" + ctx.getSubcommand() + "' does not support --all");
+        int pageSize = cmd.getPageSize(ctx);
+        if (pageSize < 1)
+            throw new IllegalArgumentException("invalid page size '" + pageSize + "' (must be a positive integer)");
+
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        try (GoldenFetcher fetcher = new GoldenFetcher(ctx.getPrefetch())) {
+            GoldenPrinter.Output output = printer.open(ctx, stdout(ctx));
+            boolean complete = false;
+            try {
+                int current = cmd.getPage(ctx);
+                int next = current;
+                while (fetcher.canSubmit()) {
+                    final int page = next++;
+                    fetcher.submit(() -> cmd.executePage(ctx, page));
+                }
+                while (fetcher.hasNext()) {
+                    GoldenFetcher.Result result = fetcher.next();
+                    if (!result.isSuccessful()) {
+                        Response response = result.getResponse();
+                        ctx.getErr().println("Error [" + response.code() + "] on page " + current + ": "
+                                + errorMessage(response) + " (the output is incomplete)");
+                        return response.code();
+                    }
+                    int rows = printer.print(ctx, output, new ByteArrayInputStream(result.getBody()));
+                    if (rows < pageSize)
+                        break;
+                    current++;
+                    final int page = next++;
+                    fetcher.submit(() -> cmd.executePage(ctx, page));
+                }
+                complete = true;
+            } finally {
+                if (complete)
+                    output.close();
+                else
+                    output.abort();
+            }
+        }
+        return EXIT_CODE_OK;
+    }
+
+    /**
+     * Executes a subcommand for several IDs. Keeps up to <code>--parallel</code> calls in flight and prints the results
+     * in request order, merged into a single output (one page: a single table, CSV header or JSON array). IDs that fail are reported and skipped.
+     * @param ctx Context object.
+     * @param ids IDs.
+     * @return Exit code: the code of the first failed call, if any.
+     * @exception Exception If a call cannot be built or executed.
+     */
+    private int executeIds(Context ctx, List<String> ids) throws Exception {
+        Command cmd = ctx.getCommand();
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        int exitCode = EXIT_CODE_OK;
+        try (GoldenFetcher fetcher = new GoldenFetcher(ctx.getParallelism());
+             GoldenPrinter.Output output = printer.open(ctx, stdout(ctx))) {
+            Iterator<String> pending = ids.iterator();
+            Deque<String> inFlight = new ArrayDeque<>();
+            while (pending.hasNext() || fetcher.hasNext()) {
+                while (pending.hasNext() && fetcher.canSubmit()) {
+                    final String id = pending.next();
+                    inFlight.add(id);
+                    fetcher.submit(() -> cmd.executeId(ctx, id));
+                }
+                String id = inFlight.poll();
+                GoldenFetcher.Result result = fetcher.next();
+                if (result.isSuccessful()) {
+                    printer.printRows(ctx, output, new ByteArrayInputStream(result.getBody()));
+                } else {
+                    Response response = result.getResponse();
+                    ctx.getErr().println("Error [" + response.code() + "] '" + id + "': " + errorMessage(response));
+                    if (exitCode == EXIT_CODE_OK)
+                        exitCode = response.code();
+                }
+            }
+            output.endPage();
+        }
+        return exitCode;
+    }
+
+    /**
+     * Repeats a list or show subcommand every <code>--watch</code> seconds until interrupted (or until the output is
+     * closed, e.g. a daemon client disconnects). Calls are conditional ({@link GoldenWatch}) and reuse the pooled
+     * connection, so an unchanged result costs a <code>304</code> and is not decoded nor rendered. Otherwise only the
+     * rows added or changed since the previous run are printed, and removed rows are reported to the error output.
+     * Failed calls are reported and retried on the next run.
+     * @param ctx Context object.
+     * @param ids IDs of the subcommand.
+     * @return Exit code.
+     * @exception Exception If a call cannot be built.
+     */
+    private int executeWatch(Context ctx, List<String> ids) throws Exception {
+        Command cmd = ctx.getCommand();
+        if (cmd.isRunnable(ctx) || ctx.isAllPages() || ids.size() > 1 || cmd.isOffline(ctx))
+            throw new IllegalArgumentException("--watch supports list and show subcommands of a single page or ID");
+        if (ctx.isAggregating())
+            throw new IllegalArgumentException("--watch does not support --group-by, --count or --sum");
+        long interval = (long) (ctx.getWatch() * 1000);
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        GoldenWatch.Session session = new GoldenWatch.Session();
+        boolean first = true;
+        while (!ctx.getOut().checkError()) {
+            long started = System.currentTimeMillis();
+            Call call = ids.size() == 1 ?cmd.executeId(ctx, ids.get(0)) :cmd.execute(ctx);
+            if (call == null)
+                throw new IllegalArgumentException("invalid call");
+            try {
+                Response response = session.execute(call);
+                if (!response.isSuccessful()) {
+                    printError(ctx, response, null);
+                } else if (session.isModified()) {
+                    Object document;
+                    try (ResponseBody body = response.body()) {
+                        document = new Gson().fromJson(body.charStream(), Object.class);
+                    }
+                    GoldenPrinter.PrintColumns pc = GoldenPrinter.PrintColumns.build(ctx, document);
+                    pc.data = session.changes(pc.data);
+                    if (!pc.data.isEmpty()) {
+                        try (GoldenPrinter.Output output = printer.open(ctx, stdout(ctx))) {
+                            output.page(pc);
+                        }
+                    }
+                    List<Object> removed = session.getRemoved();
+                    if (!first && (!pc.data.isEmpty() || !removed.isEmpty())) {
+                        ctx.getErr().println("[" + LocalTime.now().withNano(0) + "] " + pc.data.size() + " changed, "
+                                + removed.size() + " removed" + (removed.isEmpty() ?"" :": " + removed));
+                    }
+                    first = false;
+                } else {
+                    response.body().close();
+                }
+            } catch (IOException e) {
+                ctx.getErr().println("Error: " + e.getMessage());
+            }
+            ctx.getOut().flush();
+            Thread.sleep(Math.max(0, interval - (System.currentTimeMillis() - started)));
+        }
+        return EXIT_CODE_OK;
     }
 
     /**
@@ -166,15 +661,24 @@ public class GoldenClient {
      */
     private int printResult(Context ctx, Response response) {
         int exitCode = EXIT_CODE_OK;
-        try {
-            String output = GoldenPrinter.getInstance().formatOutput(ctx, response.body().string());
-            System.out.println(output);
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        try (ResponseBody body = response.body();
+             GoldenPrinter.Output output = printer.open(ctx, stdout(ctx))) {
+            printer.print(ctx, output, body.byteStream());
         } catch (IOException e) {
             exitCode = printError(ctx, null, e);
         }
         return exitCode;
     }
 
+    /**
+     * Creates a buffered writer over the context output. It must be flushed but not closed.
+     * @return Writer.
+     */
+    private Writer stdout(Context ctx) {
+        return new BufferedWriter(new OutputStreamWriter(ctx.getOut(), ctx.getOut().charset()));
+    }
+
     /**
      * Handles error.
      * @param e Exception object.
@@ -185,34 +689,46 @@ public class GoldenClient {
         try {
             if (response != null && response.body() != null) {
                 //System.out.println("--->" + response.body());
-                Map<String, Object> map = new Gson().fromJson(response.body().string(), Map.class);
-                System.out.println("Error [" + response.code() + "]: " + map.get("errors"));
+                context.getOut().println("Error [" + response.code() + "]: " + errorMessage(response));
                 exitCode = response.code();
             } else if (e instanceof ApiException) {
                 ApiException ae = (ApiException) e;
-                System.out.println("  Code: " + ae.getCode());
-                System.out.println("  Response: " + ae.getResponseBody());
+                context.getOut().println("  Code: " + ae.getCode());
+                context.getOut().println("  Response: " + ae.getResponseBody());
             } else if (e != null) {
-                System.err.println("Error: " + e.getMessage());
-                e.printStackTrace();
+                context.getErr().println("Error: " + e.getMessage());
+                e.printStackTrace(context.getErr());
             } else {
-                System.err.println("Error (unknown)");
+                context.getErr().println("Error (unknown)");
             }
         } catch (Exception critical) {
-            System.err.println("Error (critical): " + critical.getMessage());
-            critical.printStackTrace(); // this is a real error
+            context.getErr().println("Error (critical): " + critical.getMessage());
+            critical.printStackTrace(context.getErr()); // this is a real error
         }
         return exitCode;
     }
 
 
+    /**
+     * Extracts the errors reported in the body of a failed response.
+     * @param response Response object.
+     * @return Errors.
+     * @exception IOException If the body cannot be read.
+     */
+    private Object errorMessage(Response response) throws IOException {
+        Map<String, Object> map = new Gson().fromJson(response.body().string(), Map.class);
+        return map == null ?null :map.get("errors");
+    }
+
+
     // Global commands
     // =================================================================================================================
 
     /**
      * Print version and exit.
+     * @param ctx Context object.
      */
-    private void version() {
+    private void version(Context ctx) {
         // This will work when not running in a jar file
         String version = "x.x.x";
         try (InputStream inputStream = this.getClass().getResourceAsStream("/application.properties")) {
@@ -222,7 +738,7 @@ public class GoldenClient {
         } catch (IOException e) {
             // ignored
         }
-        System.out.println("Golden Client version " + version);
+        ctx.getOut().println("Golden Client version " + version);
     }
 
     /**
@@ -231,11 +747,12 @@ public class GoldenClient {
      * @param e Optional exception object.
      */
     private void help(Context ctx, Exception e) {
+        PrintStream out = ctx.getOut();
         // Header
         if (e != null) {
-            System.out.println("Error: " + e.getMessage());
+            out.println("Error: " + e.getMessage());
         } else {
-            System.out.println("Golden Client - a command line interface for Golden API");
+            out.println("Golden Client - a command line interface for Golden API");
         }
 
         // Subcommand help
@@ -243,49 +760,49 @@ public class GoldenClient {
             Command cmd = ctx.getCommand();
             String c = cmd.info().getCommand();
             Command.SubcommandInfo sci = ctx.getSubcommandInfo();
-            System.out.println("Usage: golden " + c + " " + sci.getSubcommand() + " [options] [global-options]");
-            System.out.println();
-            System.out.println(c  + " " + sci.getSubcommand() + " - " +  sci.getDescription());
-            System.out.println();
-            System.out.println("Options:");
-            System.out.println(GoldenPrinter.getInstance().formatHelp(sci.getOptions()));
+            out.println("Usage: golden " + c + " " + sci.getSubcommand() + " [options] [global-options]");
+            out.println();
+            out.println(c  + " " + sci.getSubcommand() + " - " +  sci.getDescription());
+            out.println();
+            out.println("Options:");
+            out.println(GoldenPrinter.getInstance().formatHelp(sci.getOptions()));
         }
 
         // Command help
         else if (ctx.getCommand() != null) {
             Command cmd = ctx.getCommand();
             String c = cmd.info().getCommand();
-            System.out.println();
-            System.out.println("Usage: golden " + c + " [subcommand] [options] [global-options]");
-            System.out.println();
-            System.out.println(c  + " - " + cmd.info().getDescription());
-            System.out.println();
-            System.out.println("Subcommands:");
-            System.out.println();
+            out.println();
+            out.println("Usage: golden " + c + " [subcommand] [options] [global-options]");
+            out.println();
+            out.println(c  + " - " + cmd.info().getDescription());
+            out.println();
+            out.println("Subcommands:");
+            out.println();
             Map<String, String> helpMap = cmd.info().getSubcommandsInfo().stream().collect(HashMap::new,
                     (m, sci) -> m.put(sci.getSubcommand(), sci.getDescription()), HashMap::putAll);
-            System.out.println(GoldenPrinter.getInstance().formatHelp(helpMap));
+            out.println(GoldenPrinter.getInstance().formatHelp(helpMap));
         }
 
         // Global help
         else {
-            System.out.println();
-            System.out.println("Usage: golden [command] [subcommand] [options] [global-options]");
-            System.out.println();
-            System.out.println("Commands:");
+            out.println();
+            out.println("Usage: golden [command] [subcommand] [options] [global-options]");
+            out.println();
+            out.println("Commands:");
             Map<String, String> helpMap = GoldenCommands.getInstance().getCommands().stream()
                     .collect(LinkedHashMap::new, (m, c) -> m.put(c.info().getCommand(), c.info().getDescription()), LinkedHashMap::putAll);
-            System.out.println();
-            System.out.println(GoldenPrinter.getInstance().formatHelp(helpMap));
+            out.println();
+            out.println(GoldenPrinter.getInstance().formatHelp(helpMap));
         }
 
         // Footer
-        System.out.println();
-        System.out.println("Global Options:");
-        System.out.println(GoldenPrinter.getInstance().formatHelp(GoldenParser.getInstance().getGlobalOptions()));
-        System.out.println();
-        System.out.println("Use 'golden [command] --help' for more information about a command.");
-        System.out.println("Use 'golden [command] [subcommand] --help' for more information about a subcommand.");
+        out.println();
+        out.println("Global Options:");
+        out.println(GoldenPrinter.getInstance().formatHelp(GoldenParser.getInstance().getGlobalOptions()));
+        out.println();
+        out.println("Use 'golden [command] --help' for more information about a command.");
+        out.println("Use 'golden [command] [subcommand] --help' for more information about a subcommand.");
     }
 
 
@@ -5,40 +5,81 @@ import com.trazadera.golden.cli.command.*;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
- * Golden commands manager.
+ * Golden commands manager. Commands are registered by name and only instantiated when requested, so running a
+ * command does not load the others (nor their API classes). Factories are lambdas rather than constructor references,
+ * as linking a constructor reference already loads its class.
  */
 public class GoldenCommands {
 
-    private Map<String, Command> globalCommands = new LinkedHashMap<>();
+    private Map<String, Supplier<Command>> globalCommands = new LinkedHashMap<>();
+    private Map<String, Command> instances = new ConcurrentHashMap<>();
 
     private static final GoldenCommands instance = new GoldenCommands();
 
-    private GoldenCommands() {
-        List<Command> commands = List.of(new GoldenCommand(),
-                new EntityCommand(),
-                new TableCommand(),
-                new ResourceCommand(),
-                new UserCommand(),
-                new TokenCommand(),
-                new TaskCommand());
-        for (Command c : commands) {
-            //System.out.println("--> Adding command: " + c.info().getCommand());
-            globalCommands.put(c.info().getCommand(), c);
-        }
+    // Not private, so tests can check a registry of their own
+    GoldenCommands() {
+        register("golden", () -> new GoldenCommand());
+        register("entity", () -> new EntityCommand());
+        register("table", () -> new TableCommand());
+        register("resource", () -> new ResourceCommand());
+        register("user", () -> new UserCommand());
+        register("token", () -> new TokenCommand());
+        register("task", () -> new TaskCommand());
+        register("export", () -> new ExportCommand());
     }
 
     public static GoldenCommands getInstance() {
         return instance;
     }
 
+    /**
+     * Retrieves all the commands, instantiating them. Meant for help and checks, use {@link #getCommand(String)} to
+     * run a command.
+     * @return Commands, in registration order.
+     */
     public List<Command> getCommands() {
-        return List.copyOf(globalCommands.values());
+        return globalCommands.keySet().stream().map(this::getCommand).toList();
     }
 
+    /**
+     * Retrieves the names of the registered commands without instantiating them.
+     * @return Command names, in registration order.
+     */
+    public List<String> getCommandNames() {
+        return List.copyOf(globalCommands.keySet());
+    }
+
+    /**
+     * Retrieves a command, instantiating it the first time.
+     * @param command Command name.
+     * @return Command or null if there is no such command.
+     */
     public Command getCommand(String command) {
-        return globalCommands.get(command);
+        Supplier<Command> factory = globalCommands.get(command);
+        if (factory == null)
+            return null;
+        return instances.computeIfAbsent(command, c -> {
+            Command cmd = factory.get();
+            if (cmd.info() == null || !c.equals(cmd.info().getCommand()))
+                throw new IllegalStateException("Command registered as '" + c + "' does not match its information: " + cmd.info());
+            return cmd;
+        });
+    }
+
+    /**
+     * @return Names of the commands instantiated so far.
+     */
+    Set<String> getInstantiatedNames() {
+        return Set.copyOf(instances.keySet());
+    }
+
+    private void register(String command, Supplier<Command> factory) {
+        globalCommands.put(command, factory);
     }
 
 }
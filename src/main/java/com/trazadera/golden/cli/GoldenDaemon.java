@@ -0,0 +1,267 @@
+package com.trazadera.golden.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resident Golden Client listening on a Unix domain socket. Thin clients forward their command line to the daemon, which
+ * runs it on a warm JVM (loaded commands, shared API client and connection pool) and streams back the output and the
+ * exit code.
+ * <p>
+ * Forwarded commands see the thin client rather than the daemon: relative paths are resolved against the client working
+ * directory, and the <code>GOLDEN_*</code> variables are only those of the client environment (the daemon environment
+ * is not used). Standard input is not forwarded, so options that read it (<code>--batch -</code>,
+ * <code>--ids-from -</code>) fail. The socket is only accessible to the user running the daemon.
+ */
+public class GoldenDaemon implements AutoCloseable {
+
+    // Protocol
+    private static final int PROTOCOL_VERSION = 2;
+    private static final byte FRAME_OUT = 1;
+    private static final byte FRAME_ERR = 2;
+    private static final byte FRAME_EXIT = 3;
+    private static final List<String> FORWARDED_VARIABLES = List.of("GOLDEN_TOKEN", "GOLDEN_URL", "GOLDEN_RATE",
+            "GOLDEN_MAX_IN_FLIGHT", "GOLDEN_LEFT_TOKEN", "GOLDEN_RIGHT_TOKEN");
+
+    private final GoldenClient client;
+    private final Path socket;
+    private ServerSocketChannel server;
+
+
+    // Builders
+    // =================================================================================================================
+
+    /**
+     * Creates a daemon.
+     * @param client Client that executes the command lines.
+     * @param socket Socket path.
+     */
+    public GoldenDaemon(GoldenClient client, Path socket) {
+        if (client == null)
+            throw new IllegalArgumentException("Client cannot be null");
+        if (socket == null)
+            throw new IllegalArgumentException("Socket cannot be null");
+        this.client = client;
+        this.socket = socket;
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Binds the socket and serves command lines until the daemon is closed. Each connection runs on a virtual thread.
+     * The socket is made accessible to the owner only, as command lines run with the daemon's golden file.
+     * @exception IOException If the socket cannot be bound.
+     */
+    public void serve() throws IOException {
+        synchronized (this) {
+            Files.deleteIfExists(socket); // stale socket of a previous daemon
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                server.bind(UnixDomainSocketAddress.of(socket));
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            } catch (IOException | RuntimeException e) {
+                server.close();
+                Files.deleteIfExists(socket);
+                throw e;
+            }
+            notifyAll();
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (ClosedChannelException e) {
+                    break; // closed
+                }
+                executor.submit(() -> handle(channel));
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * Waits until the daemon is listening.
+     * @exception InterruptedException If interrupted while waiting.
+     */
+    public synchronized void awaitListening() throws InterruptedException {
+        while (server == null)
+            wait();
+    }
+
+    /**
+     * Stops serving. Command lines already running are completed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (server != null)
+            server.close();
+    }
+
+    /**
+     * Forwards a command line to a daemon and copies its output to indicated streams.
+     * @param socket Socket path.
+     * @param args Command line.
+     * @param out Standard output.
+     * @param err Standard error.
+     * @return Exit code of the command line.
+     * @exception IOException If the daemon cannot be reached.
+     */
+    public static int forward(Path socket, String[] args, PrintStream out, PrintStream err) throws IOException {
+        return forward(socket, args, Path.of("").toAbsolutePath(), out, err);
+    }
+
+    static int forward(Path socket, String[] args, Path cwd, PrintStream out, PrintStream err) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            request.writeInt(PROTOCOL_VERSION);
+            request.writeInt(args.length);
+            for (String arg : args)
+                request.writeUTF(arg);
+            Map<String, String> env = new HashMap<>();
+            for (String variable : FORWARDED_VARIABLES) {
+                if (System.getenv(variable) != null)
+                    env.put(variable, System.getenv(variable));
+            }
+            request.writeInt(env.size());
+            for (Map.Entry<String, String> e : env.entrySet()) {
+                request.writeUTF(e.getKey());
+                request.writeUTF(e.getValue());
+            }
+            request.writeUTF(cwd.toString());
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (true) {
+                byte type = response.readByte();
+                if (type == FRAME_EXIT) {
+                    out.flush();
+                    err.flush();
+                    return response.readInt();
+                }
+                byte[] data = new byte[response.readInt()];
+                response.readFully(data);
+                (type == FRAME_ERR ?err :out).write(data);
+            }
+        } catch (EOFException e) {
+            throw new IOException("connection closed by daemon before completing the command");
+        }
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream request = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int version = request.readInt();
+            if (version != PROTOCOL_VERSION)
+                throw new IOException("unsupported protocol version " + version);
+            String[] args = new String[request.readInt()];
+            for (int i = 0; i < args.length; i++)
+                args[i] = request.readUTF();
+            // Only the variables of the client, so a client without a token does not borrow the daemon's
+            Map<String, String> env = new HashMap<>();
+            int variables = request.readInt();
+            for (int i = 0; i < variables; i++) {
+                String variable = request.readUTF();
+                String value = request.readUTF();
+                if (FORWARDED_VARIABLES.contains(variable))
+                    env.put(variable, value);
+            }
+            Path cwd = Path.of(request.readUTF());
+            if (!cwd.isAbsolute())
+                throw new IOException("invalid working directory " + cwd);
+
+            DataOutputStream response = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            Context ctx = new Context()
+                    .setEnvironment(env)
+                    .setWorkingDirectory(cwd)
+                    .setIn(null)
+                    .setOut(new PrintStream(new FrameOutputStream(response, FRAME_OUT), false, StandardCharsets.UTF_8))
+                    .setErr(new PrintStream(new FrameOutputStream(response, FRAME_ERR), false, StandardCharsets.UTF_8));
+            int exitCode;
+            if (Arrays.asList(args).contains("--daemon")) {
+                ctx.getErr().println("Error: a daemon cannot be started from a forwarded command line");
+                exitCode = 1;
+            } else if (Arrays.asList(args).contains("--interactive")) {
+                ctx.getErr().println("Error: interactive mode cannot be used in a forwarded command line");
+                exitCode = 1;
+            } else {
+                exitCode = client.execute(ctx, args);
+            }
+            ctx.getOut().flush();
+            ctx.getErr().flush();
+            synchronized (response) {
+                response.writeByte(FRAME_EXIT);
+                response.writeInt(exitCode);
+                response.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error: daemon connection failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends everything written to it as frames of indicated type.
+     */
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return;
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+
+}
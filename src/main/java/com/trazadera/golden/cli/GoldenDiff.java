@@ -0,0 +1,175 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming diff of two bucket sources sorted by ID (merge join). Only the current bucket of each side is held in
+ * memory, so sources of any size can be compared. Buckets with the same ID are compared by content hash first and
+ * field by field (flattened, e.g. <code>records.0.values.name</code>) only when they differ.
+ */
+public class GoldenDiff {
+
+    public static final String ADDED = "added";
+    public static final String REMOVED = "removed";
+    public static final String CHANGED = "changed";
+
+    private long added = 0;
+    private long removed = 0;
+    private long changed = 0;
+    private long unchanged = 0;
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Compares two sources. Buckets only on the left are removed, buckets only on the right are added.
+     * @param left Left (old) source.
+     * @param right Right (new) source.
+     * @param sink Receives the changes, in ID order.
+     * @exception IOException If a source cannot be read or the sink cannot write.
+     * @exception IllegalStateException If a source is not sorted by ID.
+     */
+    public void diff(Source left, Source right, Sink sink) throws IOException {
+        Cursor l = new Cursor("left", left);
+        Cursor r = new Cursor("right", right);
+        while (l.bucket != null || r.bucket != null) {
+            int c = l.bucket == null ?1 :r.bucket == null ?-1 :l.id.compareTo(r.id);
+            if (c < 0) {
+                sink.change(l.id, REMOVED, null, l.bucket, JsonNull.INSTANCE);
+                removed++;
+                l.advance();
+            } else if (c > 0) {
+                sink.change(r.id, ADDED, null, JsonNull.INSTANCE, r.bucket);
+                added++;
+                r.advance();
+            } else {
+                if (hash(l.bucket) == hash(r.bucket)) {
+                    unchanged++;
+                } else {
+                    compare(l.id, l.bucket, r.bucket, sink);
+                    changed++;
+                }
+                l.advance();
+                r.advance();
+            }
+        }
+    }
+
+    public long getAdded() {
+        return added;
+    }
+
+    public long getRemoved() {
+        return removed;
+    }
+
+    public long getChanged() {
+        return changed;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Source of buckets sorted by ID.
+     */
+    public interface Source {
+        /**
+         * @return Next bucket, null at the end.
+         */
+        JsonElement next() throws IOException;
+    }
+
+    /**
+     * Receives the changes.
+     */
+    public interface Sink {
+        /**
+         * @param id Bucket ID.
+         * @param change {@link #ADDED}, {@link #REMOVED} or {@link #CHANGED}.
+         * @param field Changed field (flattened), null for added and removed buckets.
+         * @param left Left value (JSON null if none).
+         * @param right Right value (JSON null if none).
+         */
+        void change(String id, String change, String field, JsonElement left, JsonElement right) throws IOException;
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private void compare(String id, JsonElement left, JsonElement right, Sink sink) throws IOException {
+        Map<String, JsonElement> l = new LinkedHashMap<>();
+        Map<String, JsonElement> r = new LinkedHashMap<>();
+        flatten("", left, l);
+        flatten("", right, r);
+        Set<String> fields = new LinkedHashSet<>(l.keySet());
+        fields.addAll(r.keySet());
+        for (String field : fields) {
+            JsonElement lv = l.getOrDefault(field, JsonNull.INSTANCE);
+            JsonElement rv = r.getOrDefault(field, JsonNull.INSTANCE);
+            if (!lv.equals(rv))
+                sink.change(id, CHANGED, field, lv, rv);
+        }
+    }
+
+    private void flatten(String prefix, JsonElement value, Map<String, JsonElement> fields) {
+        if (value.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> e : value.getAsJsonObject().entrySet())
+                flatten(prefix + e.getKey() + ".", e.getValue(), fields);
+        } else if (value.isJsonArray()) {
+            for (int i = 0; i < value.getAsJsonArray().size(); i++)
+                flatten(prefix + i + ".", value.getAsJsonArray().get(i), fields);
+        } else if (!prefix.isEmpty()) {
+            fields.put(prefix.substring(0, prefix.length() - 1), value);
+        }
+    }
+
+    private static long hash(JsonElement bucket) {
+        byte[] bytes = bucket.toString().getBytes(StandardCharsets.UTF_8);
+        return GoldenSnapshot.hash(bytes, bytes.length);
+    }
+
+    /**
+     * Current bucket of a source, checking that IDs are strictly increasing.
+     */
+    private static class Cursor {
+        private final String name;
+        private final Source source;
+        private JsonElement bucket;
+        private String id;
+
+        Cursor(String name, Source source) throws IOException {
+            this.name = name;
+            this.source = source;
+            advance();
+        }
+
+        void advance() throws IOException {
+            String previous = id;
+            bucket = source.next();
+            if (bucket == null) {
+                id = null;
+                return;
+            }
+            JsonElement value = bucket.isJsonObject() ?((JsonObject) bucket).get("id") :null;
+            if (value == null || !value.isJsonPrimitive())
+                throw new IllegalStateException(name + " bucket without ID: " + bucket);
+            id = value.getAsString();
+            if (previous != null && previous.compareTo(id) >= 0)
+                throw new IllegalStateException(name + " source is not sorted by ID: '" + id + "' after '" + previous + "'");
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executes calls concurrently keeping a bounded number of them in flight and returning results in submission order.
+ * Successful response bodies are downloaded by the worker, so the consumer never waits on the network for a result
+ * that has already been fetched.
+ */
+public class GoldenFetcher implements AutoCloseable {
+
+    private final int window;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+
+    // Builders
+    // =================================================================================================================
+
+    /**
+     * Creates a fetcher.
+     * @param window Maximum number of calls in flight (at least 1).
+     */
+    public GoldenFetcher(int window) {
+        if (window < 1)
+            throw new IllegalArgumentException("invalid number of calls in flight: " + window);
+        this.window = window;
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Checks whether another call can be submitted without exceeding the window.
+     * @return True if there is room for another call.
+     */
+    public boolean canSubmit() {
+        return pending.size() < window;
+    }
+
+    /**
+     * Submits a call. The call is built and executed by a worker.
+     * @param supplier Builds the call to execute.
+     */
+    public void submit(Callable<Call> supplier) {
+        if (supplier == null)
+            throw new IllegalArgumentException("Call supplier cannot be null");
+        Pending p = new Pending();
+        p.future = executor.submit(() -> {
+            Call call = supplier.call();
+            if (call == null)
+                throw new IllegalArgumentException("invalid call");
+            p.call = call;
+            return fetch(call);
+        });
+        pending.add(p);
+    }
+
+    /**
+     * Checks whether there are pending results.
+     * @return True if {@link #next()} will return a result.
+     */
+    public boolean hasNext() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Waits for the oldest submitted call.
+     * @return Result of the call.
+     * @exception Exception If the call could not be built or executed.
+     */
+    public Result next() throws Exception {
+        Pending p = pending.poll();
+        if (p == null)
+            throw new IllegalStateException("no pending calls");
+        try {
+            return p.future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels all pending calls and releases the workers.
+     */
+    @Override
+    public void close() {
+        for (Pending p : pending) {
+            p.future.cancel(true);
+            if (p.call != null)
+                p.call.cancel();
+        }
+        pending.clear();
+        executor.shutdownNow();
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    // Error bodies are buffered as well, so the connection is released even if nobody reads them
+    private Result fetch(Call call) throws IOException {
+        Response response = call.execute();
+        if (response.body() == null)
+            return new Result(response, null);
+        MediaType contentType = response.body().contentType();
+        byte[] body = response.body().bytes();
+        if (response.isSuccessful())
+            return new Result(response, body);
+        return new Result(response.newBuilder().body(ResponseBody.create(contentType, body)).build(), null);
+    }
+
+    private static class Pending {
+        Future<Result> future;
+        volatile Call call;
+    }
+
+    /**
+     * Result of a call. Body is only downloaded for successful responses.
+     */
+    public static class Result {
+        private final Response response;
+        private final byte[] body;
+
+        Result(Response response, byte[] body) {
+            this.response = response;
+            this.body = body;
+        }
+
+        public Response getResponse() {
+            return response;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public boolean isSuccessful() {
+            return response.isSuccessful();
+        }
+    }
+
+}
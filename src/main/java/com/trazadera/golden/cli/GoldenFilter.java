@@ -0,0 +1,95 @@
+package com.trazadera.golden.cli;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies output filters (JSON path expressions) to parsed documents. Compiled expressions are cached, so a filter
+ * reused across pages or commands is compiled once. Simple predicates of a filter can also be pushed down to the
+ * server as query parameters ({@link #pushdown(String, String)}), so fewer rows are transferred.
+ */
+public class GoldenFilter {
+
+    private static final GoldenFilter instance = new GoldenFilter();
+
+    // Filter on the rows of a page: $[?(...)], $[*][?(...)], $.*[?(...)] or $.content[?(...)], followed by anything
+    private static final Pattern ROW_FILTER = Pattern.compile("^\\$(?:\\.content|\\.\\*|\\[\\*\\])?\\[\\?\\((.*?)\\)\\](?:[.\\[].*)?$");
+    // Equality with a string: @.field == 'value' (or "value", or @['field'])
+    private static final Pattern EQUALS = Pattern.compile("^@(?:\\.(\\w+)|\\['(\\w+)'\\])\\s*==\\s*(['\"])([^'\"]*)\\3$");
+
+    private final Map<String, JsonPath> compiled = new ConcurrentHashMap<>();
+
+    private GoldenFilter() {
+    }
+
+    public static GoldenFilter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Retrieves the compiled version of an expression, compiling it the first time.
+     *
+     * @param expression JSON path expression.
+     * @return Compiled expression.
+     * @exception IllegalArgumentException If the expression is not valid.
+     */
+    public JsonPath compile(String expression) {
+        if (expression == null || expression.isEmpty())
+            throw new IllegalArgumentException("JSON path expression cannot be null or empty");
+        try {
+            return compiled.computeIfAbsent(expression, JsonPath::compile);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("invalid JSON path expression: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies an expression to a document.
+     *
+     * @param document   Parsed document (maps, lists and values).
+     * @param expression JSON path expression.
+     * @return Result of the expression.
+     * @exception IllegalArgumentException If the expression is not valid or cannot be applied.
+     */
+    public Object read(Object document, String expression) {
+        JsonPath path = compile(expression);
+        try {
+            return path.read(document);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("invalid JSON path expression: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finds the value a filter requires for a field of the rows, so the server can be asked for those rows only. Only
+     * filters on the rows of a page whose condition is a conjunction (<code>&amp;&amp;</code>) including
+     * <code>@.field == 'value'</code> qualify, e.g. <code>$.content[?(@.classification == 'DUPLICATE')]</code>. The
+     * whole expression must still be applied to the result: pushing down a predicate narrows the rows transferred but
+     * never changes what is printed.
+     *
+     * @param expression JSON path expression (may be null).
+     * @param field      Row field.
+     * @return Value required for the field, null if the expression cannot be pushed down for it.
+     */
+    public String pushdown(String expression, String field) {
+        if (expression == null)
+            return null;
+        Matcher filter = ROW_FILTER.matcher(expression.trim());
+        if (!filter.matches())
+            return null;
+        String condition = filter.group(1);
+        if (condition.contains("||") || condition.replace("!=", "").contains("!"))
+            return null;
+        for (String predicate : condition.split("&&")) {
+            Matcher equals = EQUALS.matcher(predicate.trim().replaceAll("^\\((.*)\\)$", "$1").trim());
+            if (equals.matches() && field.equals(equals.group(1) != null ?equals.group(1) :equals.group(2)))
+                return equals.group(4);
+        }
+        return null;
+    }
+
+}
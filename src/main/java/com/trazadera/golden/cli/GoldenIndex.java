@@ -0,0 +1,370 @@
+package com.trazadera.golden.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Index file of a snapshot ({@link GoldenSnapshot#INDEX_FILE}), laid out to be memory mapped and searched in place,
+ * so that opening it costs the same for any number of buckets. After a fixed header, it has these sections:
+ * <ul>
+ *     <li>Entries, fixed width and sorted by bucket ID (UTF-8 bytes): ID, content hash, record offset and length, and
+ *     the numbers of the classification and index attributes (-1 if none).</li>
+ *     <li>Attributes, fixed width and sorted by kind (classification, index) and name: where their postings are.</li>
+ *     <li>Postings: the entry numbers of every attribute, ascending (so in ID order).</li>
+ *     <li>Strings: UTF-8 IDs and attribute names, referenced by offset and length.</li>
+ * </ul>
+ * Each section is mapped on its own, so none of them can exceed 2 GB.
+ */
+class GoldenIndex implements AutoCloseable {
+
+    static final int MAGIC = 0x474F4C44; // GOLD
+    static final int VERSION = 3;
+    private static final int HEADER_BYTES = 28;
+    private static final int ENTRY_BYTES = 36;
+    private static final int ATTRIBUTE_BYTES = 20;
+    private static final int CLASSIFICATION_COLUMN = 28; // of an entry
+    private static final int INDEX_COLUMN = 32;
+    private static final int CLASSIFICATION = 0;
+    private static final int INDEX = 1;
+    private static final int NONE = -1;
+
+    private final FileChannel channel;
+    private final long generation;
+    private final int size;
+    private final ByteBuffer entries;
+    private final ByteBuffer attributes;
+    private final ByteBuffer postings;
+    private final ByteBuffer strings;
+
+
+    // Builders
+    // =================================================================================================================
+
+    private GoldenIndex(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_BYTES)
+                throw new IllegalStateException("invalid snapshot index: " + path);
+            ByteBuffer header = map(0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC)
+                throw new IllegalStateException("invalid snapshot index: " + path);
+            if (header.getInt(4) != VERSION)
+                throw new IllegalArgumentException("snapshot index " + path + " is of another version, update it with 'golden sync'");
+            generation = header.getLong(8);
+            size = header.getInt(16);
+            long position = HEADER_BYTES;
+            entries = map(position, (long) size * ENTRY_BYTES);
+            position += entries.capacity();
+            attributes = map(position, (long) header.getInt(20) * ATTRIBUTE_BYTES);
+            position += attributes.capacity();
+            postings = map(position, (long) header.getInt(24) * Integer.BYTES);
+            position += postings.capacity();
+            strings = map(position, channel.size() - position);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an index file.
+     * @param path Index file.
+     * @return Index.
+     * @exception IOException If the index cannot be read.
+     */
+    static GoldenIndex open(Path path) throws IOException {
+        return new GoldenIndex(path);
+    }
+
+    /**
+     * Reads the format version of an index file.
+     * @param path Index file.
+     * @return Version, -1 if it is not an index file.
+     * @exception IOException If the index cannot be read.
+     */
+    static int version(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readInt() == MAGIC ?in.readInt() :-1;
+        }
+    }
+
+    /**
+     * Writes an index file.
+     * @param path Index file.
+     * @param generation Generation of the records file.
+     * @param index Entries, in any order.
+     * @exception IOException If the index cannot be written.
+     */
+    static void write(Path path, long generation, Collection<GoldenSnapshot.Entry> index) throws IOException {
+        List<Row> rows = new ArrayList<>(index.size());
+        for (GoldenSnapshot.Entry e : index)
+            rows.add(new Row(utf8(e.id()), e));
+        rows.sort((a, b) -> Arrays.compareUnsigned(a.id(), b.id()));
+
+        // Postings of every attribute, by kind and name
+        List<TreeMap<byte[], List<Integer>>> kinds = List.of(new TreeMap<>(Arrays::compareUnsigned), new TreeMap<>(Arrays::compareUnsigned));
+        for (int n = 0; n < rows.size(); n++) {
+            GoldenSnapshot.Entry e = rows.get(n).entry();
+            if (e.classification() != null)
+                kinds.get(CLASSIFICATION).computeIfAbsent(utf8(e.classification()), k -> new ArrayList<>()).add(n);
+            if (e.index() != null)
+                kinds.get(INDEX).computeIfAbsent(utf8(e.index()), k -> new ArrayList<>()).add(n);
+        }
+        List<Map<String, Integer>> numbers = List.of(new HashMap<>(), new HashMap<>());
+        int attributeCount = 0;
+        int postingCount = 0;
+        for (int kind = CLASSIFICATION; kind <= INDEX; kind++) {
+            for (Map.Entry<byte[], List<Integer>> a : kinds.get(kind).entrySet()) {
+                numbers.get(kind).put(new String(a.getKey(), StandardCharsets.UTF_8), attributeCount++);
+                postingCount += a.getValue().size();
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeInt(rows.size());
+            out.writeInt(attributeCount);
+            out.writeInt(postingCount);
+            long string = 0;
+            for (Row row : rows) {
+                GoldenSnapshot.Entry e = row.entry();
+                out.writeInt((int) string);
+                out.writeInt(row.id().length);
+                out.writeLong(e.hash());
+                out.writeLong(e.offset());
+                out.writeInt(e.length());
+                out.writeInt(e.classification() == null ?NONE :numbers.get(CLASSIFICATION).get(e.classification()));
+                out.writeInt(e.index() == null ?NONE :numbers.get(INDEX).get(e.index()));
+                string += row.id().length;
+            }
+            int posting = 0;
+            for (int kind = CLASSIFICATION; kind <= INDEX; kind++) {
+                for (Map.Entry<byte[], List<Integer>> a : kinds.get(kind).entrySet()) {
+                    out.writeInt(kind);
+                    out.writeInt((int) string);
+                    out.writeInt(a.getKey().length);
+                    out.writeInt(posting);
+                    out.writeInt(a.getValue().size());
+                    string += a.getKey().length;
+                    posting += a.getValue().size();
+                }
+            }
+            if (string > Integer.MAX_VALUE || (long) rows.size() * ENTRY_BYTES > Integer.MAX_VALUE)
+                throw new IOException("snapshot index too large: " + rows.size() + " buckets");
+            for (TreeMap<byte[], List<Integer>> attributes : kinds) {
+                for (List<Integer> entries : attributes.values()) {
+                    for (int n : entries)
+                        out.writeInt(n);
+                }
+            }
+            for (Row row : rows)
+                out.write(row.id());
+            for (TreeMap<byte[], List<Integer>> attributes : kinds) {
+                for (byte[] name : attributes.keySet())
+                    out.write(name);
+            }
+        }
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * @return Generation of the records file.
+     */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Finds a bucket, by binary search.
+     * @param id Bucket ID.
+     * @return Index entry, null if not in the index.
+     */
+    GoldenSnapshot.Entry get(String id) {
+        byte[] key = utf8(id);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int p = middle * ENTRY_BYTES;
+            int c = compare(entries.getInt(p), entries.getInt(p + 4), key);
+            if (c < 0)
+                low = middle + 1;
+            else if (c > 0)
+                high = middle - 1;
+            else
+                return entry(middle);
+        }
+        return null;
+    }
+
+    /**
+     * Selects the buckets with a classification and an index. When both are given, the shorter postings are walked
+     * and the other attribute is checked on each entry.
+     * @param classification Classification, null for any.
+     * @param index Index ID, null for any.
+     * @return Entries sorted by bucket ID, read lazily from the mapped index.
+     */
+    List<GoldenSnapshot.Entry> select(String classification, String index) {
+        int c = classification == null ?NONE :attribute(CLASSIFICATION, classification);
+        int i = index == null ?NONE :attribute(INDEX, index);
+        if ((classification != null && c == NONE) || (index != null && i == NONE))
+            return List.of();
+        if (c == NONE && i == NONE)
+            return new Entries(size, n -> n);
+        if (c == NONE || i == NONE)
+            return postings(c == NONE ?i :c);
+
+        boolean byClassification = count(c) <= count(i);
+        int walked = byClassification ?c :i;
+        int checked = byClassification ?i :c;
+        int column = byClassification ?INDEX_COLUMN :CLASSIFICATION_COLUMN;
+        int first = attributes.getInt(walked * ATTRIBUTE_BYTES + 12);
+        int[] selected = new int[count(walked)];
+        int found = 0;
+        for (int k = 0; k < selected.length; k++) {
+            int n = postings.getInt((first + k) * Integer.BYTES);
+            if (entries.getInt(n * ENTRY_BYTES + column) == checked)
+                selected[found++] = n;
+        }
+        int[] result = Arrays.copyOf(selected, found);
+        return new Entries(result.length, k -> result[k]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private ByteBuffer map(long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("snapshot index section too large: " + length + " bytes");
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    private GoldenSnapshot.Entry entry(int n) {
+        int p = n * ENTRY_BYTES;
+        return new GoldenSnapshot.Entry(string(entries.getInt(p), entries.getInt(p + 4)), entries.getLong(p + 8),
+                entries.getLong(p + 16), entries.getInt(p + 24), name(entries.getInt(p + CLASSIFICATION_COLUMN)), name(entries.getInt(p + INDEX_COLUMN)));
+    }
+
+    private List<GoldenSnapshot.Entry> postings(int attribute) {
+        int first = attributes.getInt(attribute * ATTRIBUTE_BYTES + 12);
+        return new Entries(count(attribute), k -> postings.getInt((first + k) * Integer.BYTES));
+    }
+
+    private int count(int attribute) {
+        return attributes.getInt(attribute * ATTRIBUTE_BYTES + 16);
+    }
+
+    /**
+     * Finds an attribute, by binary search.
+     * @return Attribute number, {@link #NONE} if there is none with that name.
+     */
+    private int attribute(int kind, String name) {
+        byte[] key = utf8(name);
+        int low = 0;
+        int high = attributes.capacity() / ATTRIBUTE_BYTES - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int p = middle * ATTRIBUTE_BYTES;
+            int c = Integer.compare(attributes.getInt(p), kind);
+            if (c == 0)
+                c = compare(attributes.getInt(p + 4), attributes.getInt(p + 8), key);
+            if (c < 0)
+                low = middle + 1;
+            else if (c > 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return NONE;
+    }
+
+    private String name(int attribute) {
+        if (attribute == NONE)
+            return null;
+        int p = attribute * ATTRIBUTE_BYTES;
+        return string(attributes.getInt(p + 4), attributes.getInt(p + 8));
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        strings.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a string of the index with a key, as unsigned bytes (the order entries and attributes are written in).
+     */
+    private int compare(int offset, int length, byte[] key) {
+        int common = Math.min(length, key.length);
+        for (int k = 0; k < common; k++) {
+            int c = Integer.compare(strings.get(offset + k) & 0xff, key[k] & 0xff);
+            if (c != 0)
+                return c;
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Entry of the index to write, with its ID in UTF-8.
+     */
+    private record Row(byte[] id, GoldenSnapshot.Entry entry) {
+    }
+
+    /**
+     * Entries of the index, by position, decoded when read.
+     */
+    private class Entries extends AbstractList<GoldenSnapshot.Entry> implements RandomAccess {
+        private final int size;
+        private final IntUnaryOperator entry;
+
+        Entries(int size, IntUnaryOperator entry) {
+            this.size = size;
+            this.entry = entry;
+        }
+
+        @Override
+        public GoldenSnapshot.Entry get(int k) {
+            return entry(entry.applyAsInt(Objects.checkIndex(k, size)));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client-side rate limiter and concurrency governor, installed as an interceptor of the API client so every command
+ * sharing the client (pages of <code>--all</code>, several IDs, <code>--batch</code> lines, daemon clients) is
+ * governed together.
+ * <ul>
+ *     <li>Rate: a token bucket holding a single token, refilled at the configured rate. Calls are spaced exactly
+ *     <code>1 / rate</code> seconds apart in arrival order, so the rate is reached but never exceeded over any
+ *     window.</li>
+ *     <li>Concurrency: at most the configured number of calls are in flight; a call stays in flight until its body is
+ *     read or closed.</li>
+ * </ul>
+ * Calls served by the response cache are not governed. Both limits are off (zero) by default.
+ */
+public class GoldenLimiter implements Interceptor {
+
+    // Counters
+    public static final String COUNTER_RATE_WAITS = "rate limit waits";
+    public static final String COUNTER_IN_FLIGHT_WAITS = "in-flight waits";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long interval = 0;             // nanoseconds between calls, 0 for no rate limit
+    private long nextSlot = Long.MIN_VALUE; // earliest time (System.nanoTime) of the next call
+    private int maxInFlight = 0;           // 0 for no concurrency limit
+    private int inFlight = 0;
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Sets the limits. Calls already waiting are governed by the new limits.
+     * @param rate Maximum calls per second, 0 for no limit.
+     * @param maxInFlight Maximum concurrent calls, 0 for no limit.
+     */
+    public void configure(double rate, int maxInFlight) {
+        if (rate < 0)
+            throw new IllegalArgumentException("invalid rate '" + rate + "' (must be zero or a positive number)");
+        if (maxInFlight < 0)
+            throw new IllegalArgumentException("invalid max in flight '" + maxInFlight + "' (must be zero or a positive integer)");
+        lock.lock();
+        try {
+            this.interval = rate == 0 ?0 :(long) (1_000_000_000L / rate);
+            this.maxInFlight = maxInFlight;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        GoldenTimings timings = GoldenTimings.current();
+        acquire(timings);
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+        if (response.body() == null) {
+            release();
+            return response;
+        }
+        return response.newBuilder().body(new GovernedBody(response.body())).build();
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    /**
+     * Waits for an in-flight permit and then for the time slot of the call.
+     */
+    private void acquire(GoldenTimings timings) throws IOException {
+        long wait;
+        lock.lock();
+        try {
+            if (maxInFlight > 0 && inFlight >= maxInFlight) {
+                timings.count(COUNTER_IN_FLIGHT_WAITS, 1);
+                while (maxInFlight > 0 && inFlight >= maxInFlight)
+                    released.await();
+            }
+            inFlight++;
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlot);
+            nextSlot = slot + interval;
+            wait = slot - now;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for an in-flight permit");
+        } finally {
+            lock.unlock();
+        }
+        if (wait > 0) {
+            timings.count(COUNTER_RATE_WAITS, 1);
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                release();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for the rate limit");
+            }
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Response body that releases its in-flight permit once it has been read or closed.
+     */
+    private class GovernedBody extends ResponseBody {
+        private final ResponseBody body;
+        private BufferedSource source;
+        private boolean finished = false;
+
+        GovernedBody(ResponseBody body) {
+            this.body = body;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return body.contentLength();
+        }
+
+        @Override
+        public synchronized BufferedSource source() throws IOException {
+            if (source == null) {
+                source = Okio.buffer(new ForwardingSource(body.source()) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read == -1)
+                            done();
+                        return read;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        done();
+                        super.close();
+                    }
+                });
+            }
+            return source;
+        }
+
+        private synchronized void done() {
+            if (!finished) {
+                finished = true;
+                release();
+            }
+        }
+    }
+
+}
@@ -13,6 +13,27 @@ public class GoldenParser {
 
     private static final String OPTION_OUTPUT_FORMAT = "format";
     private static final String OPTION_OUTPUT_FILTER = "filter";
+    private static final String OPTION_ALL = "all";
+    private static final String OPTION_PREFETCH = "prefetch";
+    private static final String OPTION_BATCH = "batch";
+    private static final String OPTION_PARALLEL = "parallel";
+    private static final String OPTION_CACHE = "cache";
+    private static final String OPTION_CACHE_TTL = "cache-ttl";
+    private static final String OPTION_CACHE_SIZE = "cache-size";
+    private static final String OPTION_DAEMON = "daemon";
+    private static final String OPTION_SOCKET = "socket";
+    private static final String OPTION_TIMINGS = "timings";
+    private static final String OPTION_TRACE_FILE = "trace-file";
+    private static final String OPTION_RETRIES = "retries";
+    private static final String OPTION_RATE = "rate";
+    private static final String OPTION_MAX_IN_FLIGHT = "max-in-flight";
+    private static final String OPTION_WATCH = "watch";
+    private static final String OPTION_GROUP_BY = "group-by";
+    private static final String OPTION_COUNT = "count";
+    private static final String OPTION_SUM = "sum";
+    private static final String OPTION_COLUMNS = "columns";
+    private static final String OPTION_SORT = "sort";
+    private static final String OPTION_SORT_MEMORY = "sort-memory";
 
     private static final GoldenParser instance = new GoldenParser();
 
@@ -26,6 +47,27 @@ public class GoldenParser {
         Option url = Option.builder(null).longOpt("url").desc("Golden API URL").required(false).hasArg().argName("url").build();
         Option outputFormat = Option.builder(null).longOpt(OPTION_OUTPUT_FORMAT).desc("Output format: json (default), table, csv").required(false).hasArg().argName("format").build();
         Option outputFilter = Option.builder(null).longOpt(OPTION_OUTPUT_FILTER).desc("Output filter: a JSON path expression (https://github.com/json-path/JsonPath) to select what to print").required(false).hasArg().argName("expression").build();
+        Option all = Option.builder(null).longOpt(OPTION_ALL).desc("Walk every page of a paginated subcommand (golden list, task list) and print all rows").required(false).build();
+        Option prefetch = Option.builder(null).longOpt(OPTION_PREFETCH).desc("Number of pages fetched concurrently with --all. Default is 4").required(false).hasArg().argName("pages").build();
+        Option batch = Option.builder(null).longOpt(OPTION_BATCH).desc("Batch mode: run the command lines of a file (or standard input with '-'), one per line").required(false).hasArg().optionalArg(true).argName("file").build();
+        Option parallel = Option.builder(null).longOpt(OPTION_PARALLEL).desc("Number of concurrent commands in batch mode. Default is 8").required(false).hasArg().argName("number").build();
+        Option cache = Option.builder(null).longOpt(OPTION_CACHE).desc("Cache responses of metadata commands (e.g. entity list) in $HOME/.golden-cache").required(false).build();
+        Option cacheTtl = Option.builder(null).longOpt(OPTION_CACHE_TTL).desc("Seconds a cached response is used without revalidating it. Default depends on the command").required(false).hasArg().argName("seconds").build();
+        Option cacheSize = Option.builder(null).longOpt(OPTION_CACHE_SIZE).desc("Maximum size of the cache in MB, least recently used responses are evicted. Default is 64").required(false).hasArg().argName("MB").build();
+        Option daemon = Option.builder(null).longOpt(OPTION_DAEMON).desc("Daemon mode: keep running and execute the command lines forwarded through --socket").required(false).build();
+        Option socket = Option.builder(null).longOpt(OPTION_SOCKET).desc("Unix domain socket of the daemon. Default is $HOME/.golden.sock. Without --daemon, forwards the command line to the daemon").required(false).hasArg().argName("path").build();
+        Option timings = Option.builder(null).longOpt(OPTION_TIMINGS).desc("Print the time spent per phase (startup, parsing, HTTP, download, rendering...) to standard error").required(false).build();
+        Option traceFile = Option.builder(null).longOpt(OPTION_TRACE_FILE).desc("Write the timing spans, including every HTTP call, to a Chrome trace-event file").required(false).hasArg().argName("file").build();
+        Option retries = Option.builder(null).longOpt(OPTION_RETRIES).desc("Number of times a read call failing with 429, 502, 503, 504 or a network error is retried. Default is 3").required(false).hasArg().argName("number").build();
+        Option rate = Option.builder(null).longOpt(OPTION_RATE).desc("Maximum API calls per second, shared by all the calls of the command (or GOLDEN_RATE). Default is no limit").required(false).hasArg().argName("calls").build();
+        Option maxInFlight = Option.builder(null).longOpt(OPTION_MAX_IN_FLIGHT).desc("Maximum concurrent API calls (or GOLDEN_MAX_IN_FLIGHT). Default is no limit").required(false).hasArg().argName("calls").build();
+        Option watch = Option.builder(null).longOpt(OPTION_WATCH).desc("Repeat a list or show command every <seconds>, printing only the rows added or changed since the previous run. Stop with Ctrl-C").required(false).hasArg().argName("seconds").build();
+        Option groupBy = Option.builder(null).longOpt(OPTION_GROUP_BY).desc("Aggregate the rows by the values of these comma separated fields (dotted for nested fields) and print a row per group. Counts rows unless --sum is given").required(false).hasArg().argName("fields").build();
+        Option count = Option.builder(null).longOpt(OPTION_COUNT).desc("Count the rows (per group with --group-by)").required(false).build();
+        Option sum = Option.builder(null).longOpt(OPTION_SUM).desc("Sum the numeric values of these comma separated fields (per group with --group-by)").required(false).hasArg().argName("fields").build();
+        Option columns = Option.builder(null).longOpt(OPTION_COLUMNS).desc("Print only these comma separated columns (dotted for nested fields), in this order. Other fields are not decoded").required(false).hasArg().argName("columns").build();
+        Option sort = Option.builder(null).longOpt(OPTION_SORT).desc("Sort the rows by these comma separated fields, each one as field or field:desc. Rows beyond --sort-memory are sorted on disk").required(false).hasArg().argName("fields").build();
+        Option sortMemory = Option.builder(null).longOpt(OPTION_SORT_MEMORY).desc("Memory used by --sort in MB, beyond it sorted runs are spilled to temporary files. Default is 64").required(false).hasArg().argName("MB").build();
         Option interactive = Option.builder(null).longOpt("interactive").desc("Interactive mode (ignores all other options and enters a prompt)").required(false).build();
         globalOptions.addOption(help);
         globalOptions.addOption(version);
@@ -33,20 +75,30 @@ public class GoldenParser {
         globalOptions.addOption(url);
         globalOptions.addOption(outputFormat);
         globalOptions.addOption(outputFilter);
+        globalOptions.addOption(all);
+        globalOptions.addOption(prefetch);
+        globalOptions.addOption(batch);
+        globalOptions.addOption(parallel);
+        globalOptions.addOption(cache);
+        globalOptions.addOption(cacheTtl);
+        globalOptions.addOption(cacheSize);
+        globalOptions.addOption(daemon);
+        globalOptions.addOption(socket);
+        globalOptions.addOption(timings);
+        globalOptions.addOption(traceFile);
+        globalOptions.addOption(retries);
+        globalOptions.addOption(rate);
+        globalOptions.addOption(maxInFlight);
+        globalOptions.addOption(watch);
+        globalOptions.addOption(groupBy);
+        globalOptions.addOption(count);
+        globalOptions.addOption(sum);
+        globalOptions.addOption(columns);
+        globalOptions.addOption(sort);
+        globalOptions.addOption(sortMemory);
         globalOptions.addOption(interactive);
 
-        // Check basic command health
-        // Make sure that command options do not overlap with global options
-        for (Command c: GoldenCommands.getInstance().getCommands()) {
-            if (c.info() == null)
-                throw new IllegalStateException("Command information cannot be null: " + c.info());
-            for (Command.SubcommandInfo sci : c.info().getSubcommandsInfo()) {
-                for (Option o : sci.getOptions().getOptions()) {
-                    if (globalOptions.hasOption(o.getOpt()) || globalOptions.hasOption(o.getLongOpt()))
-                        throw new IllegalStateException("Command option '" + o.getOpt() + "' or '" + o.getLongOpt() + "' overlaps with global options");
-                }
-            }
-        }
+        // Command options must not overlap with global options: checked by GoldenCommandsTest rather than on every run
     }
 
     public static GoldenParser getInstance() {
@@ -77,13 +129,50 @@ public class GoldenParser {
                 ctx.setFormat(globalCommandLine.getOptionValue("format").toUpperCase().trim());
             if (globalCommandLine.hasOption(OPTION_OUTPUT_FILTER))
                 ctx.setOutputExpression(globalCommandLine.getOptionValue(OPTION_OUTPUT_FILTER));
+            if (globalCommandLine.hasOption(OPTION_ALL))
+                ctx.setAllPages(true);
+            if (globalCommandLine.hasOption(OPTION_PREFETCH))
+                ctx.setPrefetch(parseInteger(OPTION_PREFETCH, globalCommandLine.getOptionValue(OPTION_PREFETCH)));
+            if (globalCommandLine.hasOption(OPTION_PARALLEL))
+                ctx.setParallelism(parseInteger(OPTION_PARALLEL, globalCommandLine.getOptionValue(OPTION_PARALLEL)));
+            if (globalCommandLine.hasOption(OPTION_CACHE))
+                ctx.setCache(true);
+            if (globalCommandLine.hasOption(OPTION_CACHE_TTL))
+                ctx.setCacheTtl((long) parseInteger(OPTION_CACHE_TTL, globalCommandLine.getOptionValue(OPTION_CACHE_TTL)));
+            if (globalCommandLine.hasOption(OPTION_CACHE_SIZE))
+                ctx.setCacheSizeMb(parseInteger(OPTION_CACHE_SIZE, globalCommandLine.getOptionValue(OPTION_CACHE_SIZE)));
+            if (globalCommandLine.hasOption(OPTION_RETRIES))
+                ctx.setRetries(parseInteger(OPTION_RETRIES, globalCommandLine.getOptionValue(OPTION_RETRIES)));
+            if (globalCommandLine.hasOption(OPTION_RATE))
+                ctx.setRate(parseDouble(OPTION_RATE, globalCommandLine.getOptionValue(OPTION_RATE)));
+            if (globalCommandLine.hasOption(OPTION_MAX_IN_FLIGHT))
+                ctx.setMaxInFlight(parseInteger(OPTION_MAX_IN_FLIGHT, globalCommandLine.getOptionValue(OPTION_MAX_IN_FLIGHT)));
+            if (globalCommandLine.hasOption(OPTION_WATCH))
+                ctx.setWatch(parseDouble(OPTION_WATCH, globalCommandLine.getOptionValue(OPTION_WATCH)));
+            if (globalCommandLine.hasOption(OPTION_GROUP_BY))
+                ctx.setGroupBy(parseFields(OPTION_GROUP_BY, globalCommandLine.getOptionValue(OPTION_GROUP_BY)));
+            if (globalCommandLine.hasOption(OPTION_COUNT))
+                ctx.setCount(true);
+            if (globalCommandLine.hasOption(OPTION_SUM))
+                ctx.setSum(parseFields(OPTION_SUM, globalCommandLine.getOptionValue(OPTION_SUM)));
+            if (globalCommandLine.hasOption(OPTION_COLUMNS))
+                ctx.setColumns(parseFields(OPTION_COLUMNS, globalCommandLine.getOptionValue(OPTION_COLUMNS)));
+            if (globalCommandLine.hasOption(OPTION_SORT))
+                ctx.setSort(parseFields(OPTION_SORT, globalCommandLine.getOptionValue(OPTION_SORT)));
+            if (globalCommandLine.hasOption(OPTION_SORT_MEMORY))
+                ctx.setSortMemoryMb(parseInteger(OPTION_SORT_MEMORY, globalCommandLine.getOptionValue(OPTION_SORT_MEMORY)));
+            if (globalCommandLine.hasOption(OPTION_TIMINGS) || globalCommandLine.hasOption(OPTION_TRACE_FILE)) {
+                String traceFile = globalCommandLine.getOptionValue(OPTION_TRACE_FILE);
+                ctx.setTimings(new GoldenTimings(globalCommandLine.hasOption(OPTION_TIMINGS), traceFile == null ?null :ctx.resolvePath(traceFile)));
+            }
         } catch (ParseException e) {
             // ignored
         }
 
         // Global actions flag
         boolean globalActions = ctx.getGlobalCommandLine() != null &&
-                (ctx.getGlobalCommandLine().hasOption("help") || ctx.getGlobalCommandLine().hasOption("version"));
+                (ctx.getGlobalCommandLine().hasOption("help") || ctx.getGlobalCommandLine().hasOption("version")
+                        || ctx.getGlobalCommandLine().hasOption(OPTION_BATCH) || ctx.getGlobalCommandLine().hasOption(OPTION_DAEMON));
 
         // Retrieve command
         if (args.length > 0) {
@@ -130,6 +219,90 @@ public class GoldenParser {
     }
 
 
+    /**
+     * Splits a command line into arguments. Arguments are separated by whitespace and can be enclosed in single or
+     * double quotes to include whitespace (e.g. a filter expression).
+     * @param line Command line.
+     * @return Arguments.
+     */
+    public String[] tokenize(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                current.append(c);
+                inArg = true;
+            }
+        }
+        if (quote != 0)
+            throw new IllegalArgumentException("unclosed quote in command line: " + line);
+        if (inArg)
+            args.add(current.toString());
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Parses an integer option value.
+     * @param option Option name.
+     * @param value Option value.
+     * @return Integer value.
+     */
+    private int parseInteger(String option, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("invalid " + option + " '" + value + "' (must be an integer)");
+        }
+    }
+
+    /**
+     * Parses a decimal option value.
+     * @param option Option name.
+     * @param value Option value.
+     * @return Decimal value.
+     */
+    private double parseDouble(String option, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("invalid " + option + " '" + value + "' (must be a number)");
+        }
+    }
+
+    /**
+     * Parses a comma separated list of fields.
+     * @param option Option name.
+     * @param value Option value.
+     * @return Fields.
+     */
+    private List<String> parseFields(String option, String value) {
+        List<String> fields = value == null ?List.of() :Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(f -> !f.isEmpty())
+                .toList();
+        if (fields.isEmpty())
+            throw new IllegalArgumentException("invalid " + option + " '" + value + "' (must be a comma separated list of fields)");
+        return fields;
+    }
+
     /**
      * Extracts global arguments from command line arguments.
      * @param args Command line arguments.
@@ -139,10 +312,10 @@ public class GoldenParser {
         List<String> globalArgs = new ArrayList<>();
         for (int i=0; i<args.length; i++) {
             if (args[i].startsWith("-")) {
-                String argName = args[i].replace("-", "").trim();
+                String argName = args[i].replaceFirst("^-+", "").trim();
                 if (globalOptions.hasOption(argName)) {
                     globalArgs.add(args[i]);
-                    if (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                    if (i + 1 < args.length && (!args[i + 1].startsWith("-") || args[i + 1].equals("-"))) {
                         globalArgs.add(args[i + 1]);
                         i++;
                     }
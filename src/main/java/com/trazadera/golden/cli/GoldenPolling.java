@@ -0,0 +1,61 @@
+package com.trazadera.golden.cli;
+
+/**
+ * Adaptive polling schedule: polls fast at first, backs off geometrically for long jobs and, when the expected
+ * duration is known, polls fast again around the expected completion time.
+ * <ul>
+ *     <li>Without expectation: <code>initial</code>, then 1.5 times the previous interval, up to <code>max</code>.</li>
+ *     <li>Before the expected completion: never more than half the remaining time, so polls get closer and closer as
+ *     completion approaches.</li>
+ *     <li>After the expected completion: the back-off starts again from <code>initial</code>.</li>
+ * </ul>
+ */
+public class GoldenPolling {
+
+    private static final double BACKOFF = 1.5;
+
+    private final long initial;
+    private final long max;
+    private final long expected;
+    private long interval;
+    private boolean overdue = false;
+
+
+    // Builders
+    // =================================================================================================================
+
+    /**
+     * Creates a schedule.
+     * @param initial First interval, in milliseconds.
+     * @param max Maximum interval, in milliseconds.
+     * @param expected Expected duration, in milliseconds (0 if unknown).
+     */
+    public GoldenPolling(long initial, long max, long expected) {
+        if (initial < 1 || max < initial || expected < 0)
+            throw new IllegalArgumentException("invalid polling schedule");
+        this.initial = initial;
+        this.max = max;
+        this.expected = expected;
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Calculates the wait until the next poll.
+     * @param elapsed Time since the job started being watched, in milliseconds.
+     * @return Milliseconds to wait.
+     */
+    public long next(long elapsed) {
+        if (expected > 0 && !overdue && elapsed >= expected) {
+            overdue = true;
+            interval = 0;
+        }
+        interval = interval == 0 ?initial :Math.min(max, (long) (interval * BACKOFF));
+        if (expected > 0 && !overdue)
+            return Math.max(initial, Math.min(interval, (expected - elapsed) / 2));
+        return interval;
+    }
+
+}
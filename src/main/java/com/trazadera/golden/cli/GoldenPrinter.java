@@ -4,12 +4,25 @@ import com.github.freva.asciitable.AsciiTable;
 import com.github.freva.asciitable.Column;
 import com.github.freva.asciitable.ColumnData;
 import com.github.freva.asciitable.HorizontalAlign;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.jayway.jsonpath.JsonPath;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.apache.commons.cli.Options;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GoldenPrinter {
 
@@ -71,72 +84,610 @@ public class GoldenPrinter {
             //System.err.println("--> Result: " + response);
         if (json==null || json.isEmpty() || json.trim().isEmpty())
             return "";
-        PrintColumns pc = PrintColumns.build(context, json);
-        String output = switch (context.getFormat()) {
-            case CSV -> csv(context, pc);
-            case TABLE ->  table(context, pc);
-            default -> json(context, pc);
+        StringWriter writer = new StringWriter();
+        try (Output output = open(context, writer)) {
+            print(context, output, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // trim all newlines and spaces at end of string
+        return writer.toString().stripTrailing();
+    }
+
+    /**
+     * Opens an output that prints one or more pages of results in the context format.
+     *
+     * @param context Context object.
+     * @param writer  Destination. It is flushed, but not closed, when the output is closed.
+     * @return Output object.
+     * @exception IOException If the output cannot be written.
+     */
+    public Output open(Context context, Writer writer) throws IOException {
+        Output output = switch (context.getFormat()) {
+            case CSV -> new CsvOutput(context, writer);
+            case TABLE -> new TableOutput(context, writer);
+            default -> new JsonOutput(writer);
         };
-        if (output != null && !output.isEmpty()) {
-            // trim all newlines and spaces at end of string
-            output = output.replaceAll("[\n\\s]+$", "");
+        output.timings = context.getTimings();
+        output.columns = context.getColumns();
+        if (context.getSort() != null) {
+            output = new SortOutput(context, output);
+            output.timings = context.getTimings();
+        }
+        if (context.isAggregating()) {
+            output = new AggregateOutput(context, output);
+            output.timings = context.getTimings();
         }
         return output;
     }
 
+    /**
+     * Prints a page of results to indicated output reading it from a stream. Without a filter, rows are printed one
+     * by one as they are decoded (JSON is even copied token by token), so the page is never held in memory.
+     *
+     * @param context Context object.
+     * @param output  Output object.
+     * @param body    JSON stream. It is not closed.
+     * @return Number of rows in the page (before applying the output filter), used to detect the last page.
+     * @exception IOException If the stream cannot be read or the output cannot be written.
+     */
+    public int print(Context context, Output output, InputStream body) throws IOException {
+        return print(context, output, body, true);
+    }
+
+    /**
+     * Prints the rows of a result to indicated output as part of its current page, which is not ended: results printed
+     * this way are merged into a single table, CSV header or JSON array. The caller ends the page.
+     *
+     * @param context Context object.
+     * @param output  Output object.
+     * @param body    JSON stream. It is not closed.
+     * @return Number of rows in the result (before applying the output filter).
+     * @exception IOException If the stream cannot be read or the output cannot be written.
+     */
+    public int printRows(Context context, Output output, InputStream body) throws IOException {
+        return print(context, output, body, false);
+    }
+
+    private int print(Context context, Output output, InputStream body, boolean endPage) throws IOException {
+        GoldenTimings timings = context.getTimings();
+        long start = timings.now();
+        JsonReader in = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        JsonToken token;
+        try {
+            token = in.peek();
+        } catch (EOFException e) {
+            return 0; // empty body
+        }
+
+        // Filters need the whole document: parse it once, straight from the stream
+        final String expression = context.getOutputExpression();
+        if (expression != null && !expression.isEmpty()) {
+            long t = timings.now();
+            long downloaded = timings.downloaded();
+            Object document = Output.GSON.fromJson(in, Object.class);
+            t = timings.add(GoldenTimings.JSON, t, downloaded);
+            PrintColumns pc = PrintColumns.build(context, document);
+            t = timings.add(GoldenTimings.FILTER, t);
+            if (endPage)
+                output.page(pc);
+            else
+                output.rows(pc);
+            timings.add(GoldenTimings.RENDER, t);
+            timings.event("print", "print", start, Map.of("rows", pc.pageRows));
+            return pc.pageRows;
+        }
+
+        // Rows are the elements of a top level list, the elements of the first list of a paginated result or the
+        // top level object itself
+        int rows = 0;
+        if (token == JsonToken.BEGIN_ARRAY) {
+            rows = printElements(in, output);
+        } else if (token == JsonToken.BEGIN_OBJECT && context.isListingRows()) {
+            boolean found = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                in.nextName();
+                if (!found && in.peek() == JsonToken.BEGIN_ARRAY) {
+                    rows = printElements(in, output);
+                    found = true;
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        } else {
+            output.row(in);
+            rows = 1;
+        }
+        long t = timings.now();
+        if (endPage)
+            output.endPage();
+        timings.add(GoldenTimings.RENDER, t);
+        timings.event("print", "print", start, Map.of("rows", rows));
+        return rows;
+    }
 
-    // Private methods
+    /**
+     * Prints a page of results to indicated output.
+     *
+     * @param context Context object.
+     * @param output  Output object.
+     * @param json    JSON.
+     * @return Number of rows in the page (before applying the output filter), used to detect the last page.
+     * @exception IOException If the output cannot be written.
+     */
+    public int print(Context context, Output output, String json) throws IOException {
+        if (json==null || json.isEmpty() || json.trim().isEmpty())
+            return 0;
+        return print(context, output, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    // Outputs
     // ================================================================================================================
 
-    private String json(Context ctx, PrintColumns pc) {
-        GsonBuilder builder = new GsonBuilder();
-        builder.setPrettyPrinting();
-        return builder.create().toJson(pc.data);
+    private int printElements(JsonReader in, Output output) throws IOException {
+        int rows = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            output.row(in);
+            rows++;
+        }
+        in.endArray();
+        return rows;
+    }
+
+    /**
+     * Prints pages of results one after the other, as if they were a single result.
+     */
+    public abstract static class Output implements Closeable {
+        protected static final Gson GSON = new Gson();
+
+        protected final Writer writer;
+        protected boolean started = false;
+        protected GoldenTimings timings = GoldenTimings.disabled();
+        // Columns to print, in this order (null for all)
+        protected List<String> columns = null;
+
+        Output(Writer writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * Prints a row.
+         */
+        abstract void row(Map row) throws IOException;
+
+        /**
+         * Prints a row decoding it from a JSON reader. Values that are not objects become single column rows. With
+         * columns, only the fields they need are decoded: the rest are skipped without being materialized.
+         */
+        void row(JsonReader in) throws IOException {
+            long t = timings.now();
+            long downloaded = timings.downloaded();
+            Object value = columns != null && in.peek() == JsonToken.BEGIN_OBJECT ?decode(in) :GSON.fromJson(in, Object.class);
+            t = timings.add(GoldenTimings.JSON, t, downloaded);
+            if (value instanceof Map map) {
+                row(project(map));
+            } else {
+                Map<String, Object> map = new HashMap<>();
+                map.put("value", value);
+                row(map);
+            }
+            timings.add(GoldenTimings.RENDER, t);
+        }
+
+        /**
+         * Signals the end of a page.
+         */
+        void endPage() throws IOException {
+            started = true;
+        }
+
+        void page(PrintColumns pc) throws IOException {
+            rows(pc);
+            endPage();
+        }
+
+        void rows(PrintColumns pc) throws IOException {
+            for (Map row : pc.data)
+                row(project(row));
+        }
+
+        /**
+         * Keeps the columns of a row, in order. Missing columns are kept as nulls so every row has the same columns.
+         */
+        Map project(Map row) {
+            if (columns == null)
+                return row;
+            Map<String, Object> projected = new LinkedHashMap<>();
+            for (String column : columns)
+                projected.put(column, value(row, column));
+            return projected;
+        }
+
+        // Decodes the fields of an object needed by the columns (dotted columns need their first field)
+        private Map<String, Object> decode(JsonReader in) throws IOException {
+            Map<String, Object> row = new LinkedHashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (isNeeded(name))
+                    row.put(name, GSON.fromJson(in, Object.class));
+                else
+                    in.skipValue();
+            }
+            in.endObject();
+            return row;
+        }
+
+        private boolean isNeeded(String name) {
+            for (String column : columns) {
+                if (column.equals(name) || (column.startsWith(name) && column.charAt(name.length()) == '.'))
+                    return true;
+            }
+            return false;
+        }
+
+        // Field value, dotted names reach into nested objects
+        static Object value(Map row, String field) {
+            Object value = row.get(field);
+            if (value != null || field.indexOf('.') < 0)
+                return value;
+            Object current = row;
+            for (String name : field.split("\\.")) {
+                if (!(current instanceof Map map))
+                    return null;
+                current = map.get(name);
+            }
+            return current;
+        }
+
+        /**
+         * Ends the output after a failure instead of closing it: what was printed is flushed, but the result is not
+         * completed (no closing JSON bracket, totals nor sorted rows), so it cannot pass for a complete one.
+         */
+        void abort() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static class JsonOutput extends Output {
+        private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        private final JsonWriter json;
+
+        JsonOutput(Writer writer) throws IOException {
+            super(writer);
+            this.json = gson.newJsonWriter(writer);
+        }
+
+        @Override
+        void row(Map row) throws IOException {
+            begin();
+            gson.toJson(row, Map.class, json);
+        }
+
+        // Copies the row token by token (accounted as parsing, it is not decoded), unless it has to be projected
+        @Override
+        void row(JsonReader in) throws IOException {
+            if (columns != null) {
+                super.row(in);
+                return;
+            }
+            long t = timings.now();
+            long downloaded = timings.downloaded();
+            begin();
+            copyValue(in);
+            timings.add(GoldenTimings.JSON, t, downloaded);
+        }
+
+        @Override
+        void endPage() throws IOException {
+            begin();
+        }
+
+        private void begin() throws IOException {
+            if (!started) {
+                json.beginArray();
+                started = true;
+            }
+        }
+
+        // Numbers are written as doubles, the same way Gson prints them after parsing
+        private void copyValue(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case BEGIN_ARRAY -> {
+                    in.beginArray();
+                    json.beginArray();
+                    while (in.hasNext())
+                        copyValue(in);
+                    in.endArray();
+                    json.endArray();
+                }
+                case BEGIN_OBJECT -> {
+                    in.beginObject();
+                    json.beginObject();
+                    while (in.hasNext()) {
+                        json.name(in.nextName());
+                        copyValue(in);
+                    }
+                    in.endObject();
+                    json.endObject();
+                }
+                case STRING -> json.value(in.nextString());
+                case NUMBER -> json.value(in.nextDouble());
+                case BOOLEAN -> json.value(in.nextBoolean());
+                case NULL -> {
+                    in.nextNull();
+                    json.nullValue();
+                }
+                default -> throw new IOException("unexpected JSON token " + in.peek() + " at " + in.getPath());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (started) {
+                json.endArray();
+                writer.write("\n");
+            }
+            super.close();
+        }
     }
 
-    private String csv(Context ctx, PrintColumns pc) {
-        StringBuilder output = new StringBuilder();
-        final String separator = ctx.getCsvSeparator();
+    private static class CsvOutput extends Output {
+        // Rows buffered to discover the header before streaming the rest
+        private static final int HEADER_LOOKAHEAD = 1000;
 
-        boolean header = true;
-        for (int row=0; row<pc.data.size(); row++) {
-            if (header) {
-                output.append(pc.columns.stream().collect(Collectors.joining(separator)));
-                output.append("\n");
-                header = false;
+        private final CsvWriter csv;
+        private final PrintStream err;
+        private List<Map<String, Object>> lookahead = new ArrayList<>();
+        private List<String> header = null;
+        private Set<String> known = null;
+        private boolean warned = false;
+
+        CsvOutput(Context ctx, Writer writer) {
+            super(writer);
+            this.csv = new CsvWriter(writer, ctx.getCsvSeparator());
+            this.err = ctx.getErr();
+        }
+
+        // Nested objects are flattened into dotted columns. The header is the union of the columns found in the first
+        // page (or the first rows, if the page is large); columns first seen afterwards are not printed, with a warning
+        @Override
+        void row(Map row) throws IOException {
+            Map<String, Object> flat = CsvWriter.flatten(row);
+            if (header == null) {
+                lookahead.add(flat);
+                if (lookahead.size() >= HEADER_LOOKAHEAD)
+                    writeHeader();
+            } else {
+                writeRow(flat);
             }
-            for (int col = 0; col < pc.columns.size(); col++) {
-                if (col > 0)
-                    output.append(separator);
-                Object value = pc.data.get(row).get(pc.columns.get(col));
-                output.append(value==null ?"" :value.toString());
+        }
+
+        @Override
+        void endPage() throws IOException {
+            if (header == null && !lookahead.isEmpty())
+                writeHeader();
+            started = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (header == null && !lookahead.isEmpty())
+                writeHeader();
+            super.close();
+        }
+
+        private void writeHeader() throws IOException {
+            header = PrintColumns.columns(lookahead);
+            known = new HashSet<>(header);
+            csv.writeRecord(header);
+            for (Map<String, Object> row : lookahead)
+                writeRow(row);
+            lookahead = null;
+        }
+
+        private void writeRow(Map<String, Object> row) throws IOException {
+            if (!warned && !known.containsAll(row.keySet())) {
+                warned = true;
+                String missing = row.keySet().stream().filter(c -> !known.contains(c)).findFirst().orElse("");
+                err.println("Warning: column '" + missing + "' is not in the CSV header (taken from the first "
+                        + HEADER_LOOKAHEAD + " rows or the first page) and is not printed. Use --columns to choose the columns");
             }
-            output.append("\n");
+            List<Object> values = new ArrayList<>(header.size());
+            for (String col : header)
+                values.add(row.get(col));
+            csv.writeRecord(values);
         }
-        return output.toString();
     }
 
-    private String table(Context ctx, PrintColumns pc) {
-        Collection<Map> objects = pc.data;
-        List<ColumnData<Map>> columns = new ArrayList<>();
-        for (String col: pc.columns) {
-            final String columnId = col;
-            ColumnData<Map> cd = new Column().
-                    dataAlign(HorizontalAlign.LEFT).
-                    header(columnId).
-                    with(m -> {
-                        Object value = m.get(columnId);
-                        return value==null ?"" :value.toString();
-                    });
-            columns.add(cd);
+    private static class TableOutput extends Output {
+        private final Character[] border;
+        private final List<Map> rows = new ArrayList<>();
+
+        TableOutput(Context ctx, Writer writer) {
+            super(writer);
+            this.border = ctx.isTableBorder() ?AsciiTable.FANCY_ASCII :AsciiTable.NO_BORDERS;
+        }
+
+        @Override
+        void row(Map row) {
+            rows.add(row);
+        }
+
+        // Tables need every row to compute column widths, so each page is rendered as its own table
+        @Override
+        void endPage() throws IOException {
+            if (started && rows.isEmpty())
+                return;
+            List<ColumnData<Map>> columns = new ArrayList<>();
+            for (String col: PrintColumns.columns(rows)) {
+                final String columnId = col;
+                ColumnData<Map> cd = new Column().
+                        dataAlign(HorizontalAlign.LEFT).
+                        header(columnId).
+                        with(m -> {
+                            Object value = m.get(columnId);
+                            return value==null ?"" :value.toString();
+                        });
+                columns.add(cd);
+            }
+            writer.write(AsciiTable.getTable(border, rows, columns));
+            writer.write("\n");
+            rows.clear();
+            started = true;
         }
-        Character[] border = ctx.isTableBorder() ?AsciiTable.FANCY_ASCII :AsciiTable.NO_BORDERS;
-        return AsciiTable.getTable(border, objects, columns);
     }
 
-    private static class PrintColumns {
+    /**
+     * Folds the rows into hash aggregates as they arrive (a count and sums per group) and prints a row per group
+     * through another output when closed. Only the groups are kept in memory, never the rows.
+     */
+    private static class AggregateOutput extends Output {
+        private final Output output;
+        private final List<String> groupBy;
+        private final List<String> sum;
+        private final boolean count;
+        private final Map<List<Object>, Aggregate> groups = new LinkedHashMap<>();
+
+        AggregateOutput(Context ctx, Output output) {
+            super(output.writer);
+            this.output = output;
+            this.groupBy = ctx.getGroupBy() == null ?List.of() :ctx.getGroupBy();
+            this.sum = ctx.getSum() == null ?List.of() :ctx.getSum();
+            this.count = ctx.isCount() || sum.isEmpty();
+            // Only the grouped and summed fields are decoded
+            this.columns = new ArrayList<>(groupBy);
+            this.columns.addAll(sum);
+        }
+
+        @Override
+        void row(Map row) {
+            List<Object> key = new ArrayList<>(groupBy.size());
+            for (String field : groupBy)
+                key.add(value(row, field));
+            Aggregate aggregate = groups.computeIfAbsent(key, k -> new Aggregate(sum.size()));
+            aggregate.count++;
+            for (int i = 0; i < sum.size(); i++) {
+                Object value = value(row, sum.get(i));
+                if (value instanceof Number n) {
+                    aggregate.sums[i] += n.doubleValue();
+                } else if (value instanceof String str) {
+                    try {
+                        aggregate.sums[i] += Double.parseDouble(str);
+                    } catch (NumberFormatException e) {
+                        // not a number: ignored, like a missing value
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // Without groups, the totals are printed even if there are no rows
+                if (groupBy.isEmpty() && groups.isEmpty())
+                    groups.put(List.of(), new Aggregate(sum.size()));
+                for (Map.Entry<List<Object>, Aggregate> e : groups.entrySet()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 0; i < groupBy.size(); i++)
+                        row.put(groupBy.get(i), e.getKey().get(i));
+                    if (count)
+                        row.put("count", e.getValue().count);
+                    for (int i = 0; i < sum.size(); i++)
+                        row.put("sum(" + sum.get(i) + ")", number(e.getValue().sums[i]));
+                    output.row(output.project(row));
+                }
+                output.endPage();
+            } finally {
+                output.close();
+            }
+        }
+
+        @Override
+        void abort() throws IOException {
+            output.abort();
+        }
+
+        private static Object number(double value) {
+            return value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE ?(Object) (long) value :value;
+        }
+
+        private static class Aggregate {
+            private long count = 0;
+            private final double[] sums;
+
+            Aggregate(int sums) {
+                this.sums = new double[sums];
+            }
+        }
+    }
+
+    /**
+     * Sorts the rows ({@link GoldenSort}) and prints them through another output when closed, in pages of
+     * {@link #SORTED_PAGE} rows so outputs that render page by page (tables) never hold every row.
+     */
+    private static class SortOutput extends Output {
+        private static final int SORTED_PAGE = 1000;
+
+        private final Output output;
+        private final GoldenSort sort;
+
+        SortOutput(Context ctx, Output output) {
+            super(output.writer);
+            this.output = output;
+            this.sort = new GoldenSort(ctx.getSort(), ctx.getSortMemoryMb() * 1024 * 1024);
+            // Only the printed columns and the sort fields are decoded
+            if (output.columns != null) {
+                this.columns = new ArrayList<>(output.columns);
+                for (String key : ctx.getSort()) {
+                    String field = key.contains(":") ?key.substring(0, key.lastIndexOf(':')).trim() :key;
+                    if (!columns.contains(field))
+                        columns.add(field);
+                }
+            }
+        }
+
+        @Override
+        void row(Map row) throws IOException {
+            sort.add(row);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (sort) {
+                int[] rows = {0};
+                sort.forEach(row -> {
+                    output.row(output.project(row));
+                    if (++rows[0] % SORTED_PAGE == 0)
+                        output.endPage();
+                });
+                if (rows[0] == 0 || rows[0] % SORTED_PAGE != 0)
+                    output.endPage();
+            } finally {
+                output.close();
+            }
+        }
+
+        @Override
+        void abort() throws IOException {
+            try (sort) {
+                output.abort();
+            }
+        }
+    }
+
+    static class PrintColumns {
         List<Map> data = null;
-        List<String> columns = null;
+        int pageRows = 0;
 
         PrintColumns() {
         }
@@ -145,80 +696,103 @@ public class GoldenPrinter {
         public String toString() {
             final StringBuilder sb = new StringBuilder("PrintColumns{");
             sb.append("data=").append(data);
-            sb.append(", columns=").append(columns);
+            sb.append(", pageRows=").append(pageRows);
             sb.append('}');
             return sb.toString();
         }
 
         /**
-         * Prepares columns and data to be printed. Eventually applies a Json Path expression.
+         * Prepares data to be printed. Eventually applies a Json Path expression. The document is parsed once and
+         * shared by the filter and the output.
          *
-         * @param ctx  Context object.
-         * @param json JSON.
-         * @return PrintColumns object with columns and data.
+         * @param ctx      Context object.
+         * @param document Parsed JSON document.
+         * @return PrintColumns object with data.
          */
-        public static PrintColumns build(Context ctx, String json) {
+        static PrintColumns build(Context ctx, Object document) {
 
             PrintColumns pc = new PrintColumns();
+            pc.data = rows(document, "value");
 
-            // Initial parse
-            pc.data = List.of(new GsonBuilder().create().fromJson(json, Map.class));
+            // Paginated results: the rows of a page are its first list (e.g. content)
+            List content = document instanceof List list ?list :firstList(document);
+            pc.pageRows = content==null ?0 :content.size();
+            if (ctx.isListingRows() && content != null)
+                pc.data = rows(content, "value");
 
             // Json Path expression
             final String expression = ctx.getOutputExpression();
             if (expression != null && !expression.isEmpty()) {
-                try {
-                    Object result = JsonPath.read(json, expression);
-                    // Create a columnName that removes from expression everything that is not a letter or number
-                    String columnName = expression.replaceAll("[^a-zA-Z0-9]", "");
-                    if (result==null) {
-                        pc.data = List.of();
-                    } else if (result instanceof Map) {
-                        pc.data = List.of((Map) result);
-                    } else  if (result instanceof List) {
-                        List list = (List) result;
-                        if (list==null || list.isEmpty()) {
-                            pc.data = List.of();
-                        } else if (list.get(0) instanceof Map) {
-                            pc.data = list;
-                        } else {
-                            pc.data = list.stream().map(o -> {
-                                Map<String, Object> map = new HashMap<>();
-                                map.put(columnName, o);
-                                return map;
-                            }).toList();
-                        }
-                    } else {
-                        pc.data = List.of(Map.of(columnName, result));
-                    }
-                } catch (Exception e) {
-                    throw new IllegalArgumentException("invalid JSON path expression: " + e.getMessage());
-                }
+                Object result = GoldenFilter.getInstance().read(document, expression);
+                // Create a columnName that removes from expression everything that is not a letter or number
+                String columnName = expression.replaceAll("[^a-zA-Z0-9]", "");
+                pc.data = rows(result, columnName);
             }
 
-            //        if (map.size()==1) {
-            //            String key = map.keySet().iterator().next();
-            //            Object value = map.get(key);
-            //            if (value==null) {
-            //                return PrintColumns.EMPTY;
-            //            } else if (value instanceof List) {
-            //                pc.data = (List<Map>)value;
-            //            } else if (value instanceof Map) {
-            //                pc.data = List.of((Map) value);
-            //            }
-            //        }
-
-            // Calculate columns
-            // By default include all in natural order
+            return pc;
+        }
+
+        /**
+         * Calculates the columns of indicated rows. By default include all in natural order.
+         *
+         * @param rows Rows.
+         * @return Columns.
+         */
+        static List<String> columns(Collection<? extends Map> rows) {
             LinkedHashSet<String> columns = new LinkedHashSet<>();
-            for (Map item : pc.data) {
+            for (Map item : rows) {
                 for (Object col : item.keySet()) {
                     if (col != null)
                         columns.add(col.toString());
                 }
             }
-            pc.columns = columns.stream().toList();
-            return pc;
+            return columns.stream().toList();
+        }
+
+        /**
+         * Converts a result into rows. Scalar values are wrapped into a single column row.
+         *
+         * @param result     Result.
+         * @param columnName Column name for scalar values.
+         * @return Rows.
+         */
+        private static List<Map> rows(Object result, String columnName) {
+            if (result==null) {
+                return List.of();
+            } else if (result instanceof Map) {
+                return List.of((Map) result);
+            } else  if (result instanceof List) {
+                List list = (List) result;
+                if (list==null || list.isEmpty()) {
+                    return List.of();
+                } else if (list.get(0) instanceof Map) {
+                    return list;
+                } else {
+                    return list.stream().map(o -> {
+                        Map<String, Object> map = new HashMap<>();
+                        map.put(columnName, o);
+                        return map;
+                    }).toList();
+                }
+            } else {
+                return List.of(Map.of(columnName, result));
+            }
+        }
+
+        /**
+         * Locates the first list among the top level values of a document.
+         *
+         * @param document Document.
+         * @return List or null if there is none.
+         */
+        private static List firstList(Object document) {
+            if (!(document instanceof Map map))
+                return null;
+            for (Object value : map.values()) {
+                if (value instanceof List list)
+                    return list;
+            }
+            return null;
         }
     }
 
@@ -0,0 +1,208 @@
+package com.trazadera.golden.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only query engine over a local snapshot ({@link GoldenSnapshot}). The records file is memory mapped, so
+ * records are served straight from the page cache without copies, and so is the index ({@link GoldenIndex}): buckets
+ * are found by binary search on their ID and selected by the postings of their classification and index ID, so
+ * opening a snapshot does not read nor sort it whole.
+ * <p>
+ * The snapshot is read as of the moment it is opened: a concurrent sync only appends records and replaces the index
+ * atomically, so it does not disturb an open query.
+ */
+public class GoldenQuery implements AutoCloseable {
+
+    // Files are mapped in chunks, as a single mapping cannot exceed 2 GB. Chunks overlap, so that a record starting
+    // in a chunk is usually found whole in it
+    private static final long CHUNK = 1L << 30;
+    private static final long OVERLAP = 64L << 20;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final GoldenIndex index;
+
+
+    // Builders
+    // =================================================================================================================
+
+    private GoldenQuery(Path dir) throws IOException {
+        if (!Files.exists(dir.resolve(GoldenSnapshot.INDEX_FILE)))
+            throw new IllegalArgumentException("no snapshot found in " + dir + ", create it with 'golden sync'");
+        index = GoldenIndex.open(dir.resolve(GoldenSnapshot.INDEX_FILE));
+        try {
+            channel = FileChannel.open(GoldenSnapshot.records(dir, index.generation()), StandardOpenOption.READ);
+            long size = channel.size();
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK - 1) / CHUNK)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = i * CHUNK;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, CHUNK + OVERLAP));
+            }
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the snapshot of a directory for querying.
+     * @param dir Snapshot directory.
+     * @return Query engine.
+     * @exception IOException If the snapshot cannot be read.
+     */
+    public static GoldenQuery open(Path dir) throws IOException {
+        return new GoldenQuery(dir);
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Finds a bucket.
+     * @param id Bucket ID.
+     * @return Index entry, null if not in the snapshot.
+     */
+    public GoldenSnapshot.Entry get(String id) {
+        return index.get(id);
+    }
+
+    /**
+     * Selects the buckets with a classification and an index, starting from the smallest secondary index.
+     * @param classification Classification, null for any.
+     * @param index Index ID, null for any.
+     * @return Entries sorted by bucket ID.
+     */
+    public List<GoldenSnapshot.Entry> select(String classification, String index) {
+        return this.index.select(classification, index);
+    }
+
+    /**
+     * Reads a record.
+     * @param entry Index entry.
+     * @return Record JSON, as a stream over the mapped file.
+     * @exception IOException If the record cannot be read.
+     */
+    public InputStream read(GoldenSnapshot.Entry entry) throws IOException {
+        int chunk = (int) (entry.offset() / CHUNK);
+        int position = (int) (entry.offset() - chunk * CHUNK);
+        if (chunk < chunks.length && position + (long) entry.length() <= chunks[chunk].limit())
+            return new BufferInputStream(chunks[chunk].slice(position, entry.length()));
+
+        // Larger than the overlap of chunks
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, entry.offset() + buffer.position()) < 0)
+                throw new IOException("truncated snapshot record: " + entry.id());
+        }
+        return new ByteArrayInputStream(buffer.array());
+    }
+
+    /**
+     * Streams a page of records as the API would return it: <code>{"content": [...], "number": ..., ...}</code>.
+     * Records are read lazily, so a page is never held in memory.
+     * @param entries Selected entries.
+     * @param page Page number, from 0.
+     * @param size Page size, at least 1.
+     * @return Page JSON.
+     */
+    public InputStream page(List<GoldenSnapshot.Entry> entries, int page, int size) {
+        int from = (int) Math.min((long) page * size, entries.size());
+        int to = (int) Math.min((long) from + size, entries.size());
+        int totalPages = (entries.size() + size - 1) / size;
+        String end = "],\"number\":" + page + ",\"size\":" + size + ",\"numberOfElements\":" + (to - from)
+                + ",\"totalElements\":" + entries.size() + ",\"totalPages\":" + totalPages + "}";
+        Iterator<GoldenSnapshot.Entry> it = entries.subList(from, to).iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            private boolean started = false;
+            private boolean ended = false;
+
+            @Override
+            public boolean hasMoreElements() {
+                return !ended;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (ended)
+                    throw new NoSuchElementException();
+                if (!started) {
+                    started = true;
+                    return bytes("{\"content\":[");
+                }
+                if (!it.hasNext()) {
+                    ended = true;
+                    return bytes(end);
+                }
+                try {
+                    InputStream record = read(it.next());
+                    return it.hasNext() ?new SequenceInputStream(record, bytes(",")) :record;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        index.close();
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private static InputStream bytes(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Input stream over a (mapped) buffer.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ?buffer.get() & 0xff :-1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
@@ -0,0 +1,326 @@
+package com.trazadera.golden.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Local snapshot of the buckets of an entity, kept in a directory:
+ * <ul>
+ *     <li><code>records.&lt;generation&gt;.ndjson</code>: append-only record store, one bucket per line. A changed
+ *     bucket is appended again and the previous line becomes garbage, reclaimed by compaction into a new
+ *     generation.</li>
+ *     <li><code>index.bin</code>: ID index with the offset, length and content hash (FNV-1a, 64 bits) of the current
+ *     line of every bucket, along with its classification and index and their postings, laid out to be searched in
+ *     place by {@link GoldenQuery} (see {@link GoldenIndex}). It is replaced atomically once the records it points to
+ *     are on disk, so an interrupted update leaves the previous snapshot intact.</li>
+ *     <li><code>snapshot.properties</code>: snapshot state (entity, watermark...).</li>
+ * </ul>
+ */
+public class GoldenSnapshot implements AutoCloseable {
+
+    public static final String INDEX_FILE = "index.bin";
+    public static final String STATE_FILE = "snapshot.properties";
+    private static final long COMPACTION_MIN_GARBAGE = 1024 * 1024;
+
+    private final Path dir;
+    private final Properties state = new Properties();
+    private final Map<String, Entry> index = new LinkedHashMap<>();
+    private long generation = 0;
+    private FileChannel channel;
+    private OutputStream out;
+    private long size;
+    private long live = 0;
+
+
+    // Builders
+    // =================================================================================================================
+
+    private GoldenSnapshot(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Opens the snapshot of a directory, creating an empty one if the directory has none.
+     * @param dir Snapshot directory.
+     * @return Snapshot.
+     * @exception IOException If the snapshot cannot be read.
+     */
+    public static GoldenSnapshot open(Path dir) throws IOException {
+        GoldenSnapshot snapshot = new GoldenSnapshot(dir);
+        Files.createDirectories(dir);
+        snapshot.generation = readIndex(dir, snapshot.index);
+        for (Entry e : snapshot.index.values())
+            snapshot.live += e.length() + 1;
+        snapshot.readState();
+        snapshot.channel = FileChannel.open(snapshot.records(snapshot.generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        snapshot.size = snapshot.end();
+        snapshot.channel.truncate(snapshot.size); // lines of an interrupted update
+        snapshot.channel.position(snapshot.size);
+        snapshot.out = new BufferedOutputStream(Channels.newOutputStream(snapshot.channel), 64 * 1024);
+        snapshot.deleteOtherGenerations();
+        return snapshot;
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Snapshot state, saved by {@link #commit()}.
+     * @return Mutable state properties.
+     */
+    public Properties getState() {
+        return state;
+    }
+
+    /**
+     * Current records file, for readers (e.g. memory mapping).
+     * @return Path of the records file.
+     */
+    public Path getRecords() {
+        return records(generation);
+    }
+
+    /**
+     * @return Number of buckets in the snapshot.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Finds the current line of a bucket.
+     * @param id Bucket ID.
+     * @return Index entry, null if not in the snapshot.
+     */
+    public Entry get(String id) {
+        return index.get(id);
+    }
+
+    /**
+     * @return Index entries.
+     */
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(index.values());
+    }
+
+    /**
+     * Adds or updates a bucket. Unchanged buckets (same content hash) are skipped.
+     * @param id Bucket ID.
+     * @param classification Bucket classification, null if unknown.
+     * @param idx Bucket index ID, null if unknown.
+     * @param json Bucket JSON, in a single line.
+     * @return True if the bucket was added or changed.
+     * @exception IOException If the record cannot be written.
+     */
+    public boolean put(String id, String classification, String idx, String json) throws IOException {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        long hash = hash(bytes, bytes.length - 1);
+        Entry previous = index.get(id);
+        if (previous != null && previous.hash() == hash) {
+            if (!Objects.equals(previous.classification(), classification) || !Objects.equals(previous.index(), idx))
+                index.put(id, new Entry(id, hash, previous.offset(), previous.length(), classification, idx));
+            return false;
+        }
+        out.write(bytes);
+        index.put(id, new Entry(id, hash, size, bytes.length - 1, classification, idx));
+        size += bytes.length;
+        live += bytes.length - (previous == null ?0 :previous.length() + 1);
+        return true;
+    }
+
+    /**
+     * Reads the current line of a bucket.
+     * @param entry Index entry.
+     * @return Bucket JSON.
+     * @exception IOException If the record cannot be read.
+     */
+    public String read(Entry entry) throws IOException {
+        out.flush();
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, entry.offset() + buffer.position()) < 0)
+                throw new IOException("truncated snapshot record: " + entry.id());
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes the changes durable: the records are forced to disk and then the index and the state are replaced. The
+     * records file is compacted first when most of it is garbage.
+     * @exception IOException If the snapshot cannot be written.
+     */
+    public void commit() throws IOException {
+        out.flush();
+        channel.force(false);
+        if (size - live > COMPACTION_MIN_GARBAGE && size - live > live)
+            compact();
+        writeIndex();
+        writeState();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Hashes content with FNV-1a (64 bits).
+     * @param bytes Content.
+     * @param length Number of bytes to hash.
+     * @return Hash.
+     */
+    public static long hash(byte[] bytes, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Index entry: where the current line of a bucket is, the hash of its content and the attributes it is queried by.
+     */
+    public record Entry(String id, long hash, long offset, int length, String classification, String index) {
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private Path records(long generation) {
+        return records(dir, generation);
+    }
+
+    static Path records(Path dir, long generation) {
+        return dir.resolve("records." + generation + ".ndjson");
+    }
+
+    private long end() {
+        long end = 0;
+        for (Entry e : index.values())
+            end = Math.max(end, e.offset() + e.length() + 1);
+        return end;
+    }
+
+    /**
+     * Reads the index of a snapshot directory.
+     * @param dir Snapshot directory.
+     * @param index Where to put the entries.
+     * @return Generation of the records file, 0 if there is no index.
+     */
+    private static long readIndex(Path dir, Map<String, Entry> index) throws IOException {
+        Path path = dir.resolve(INDEX_FILE);
+        if (!Files.exists(path))
+            return 0;
+        if (GoldenIndex.version(path) == GoldenIndex.VERSION) {
+            try (GoldenIndex in = GoldenIndex.open(path)) {
+                for (Entry e : in.select(null, null))
+                    index.put(e.id(), e);
+                return in.generation();
+            }
+        }
+
+        // Versions 1 and 2, streamed in insertion order and replaced by the next commit
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            int version = in.readInt() == GoldenIndex.MAGIC ?in.readInt() :-1;
+            if (version < 1 || version > 2)
+                throw new IllegalStateException("invalid snapshot index: " + path);
+            long generation = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry e = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readInt(),
+                        version > 1 ?attribute(in.readUTF()) :null, version > 1 ?attribute(in.readUTF()) :null);
+                index.put(e.id(), e);
+            }
+            return generation;
+        }
+    }
+
+    private static String attribute(String value) {
+        return value.isEmpty() ?null :value;
+    }
+
+    private void writeIndex() throws IOException {
+        Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+        GoldenIndex.write(tmp, generation, index.values());
+        Files.move(tmp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readState() throws IOException {
+        Path path = dir.resolve(STATE_FILE);
+        if (!Files.exists(path))
+            return;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            state.load(reader);
+        }
+    }
+
+    private void writeState() throws IOException {
+        Path tmp = dir.resolve(STATE_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            state.store(writer, "golden snapshot");
+        }
+        Files.move(tmp, dir.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Copies the current lines to a new generation. The old one is deleted once the new index points elsewhere.
+     */
+    private void compact() throws IOException {
+        long next = generation + 1;
+        FileChannel compacted = FileChannel.open(records(next),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long offset = 0;
+        for (Map.Entry<String, Entry> e : index.entrySet()) {
+            Entry entry = e.getValue();
+            long copied = 0;
+            while (copied < entry.length() + 1)
+                copied += channel.transferTo(entry.offset() + copied, entry.length() + 1 - copied, compacted);
+            e.setValue(new Entry(entry.id(), entry.hash(), offset, entry.length(), entry.classification(), entry.index()));
+            offset += entry.length() + 1;
+        }
+        compacted.force(false);
+        channel.close();
+        channel = compacted;
+        out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        generation = next;
+        size = offset;
+        live = offset;
+        writeIndex();
+        deleteOtherGenerations();
+    }
+
+    private void deleteOtherGenerations() throws IOException {
+        Path current = records(generation);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "records.*.ndjson")) {
+            for (Path f : files) {
+                if (!f.equals(current))
+                    Files.deleteIfExists(f);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * External merge sort of rows. Rows are buffered (as JSON) up to a memory budget; beyond it, the buffer is sorted and
+ * spilled to a temporary file as a sorted run. At the end, the runs are merged k ways (in several passes if there are
+ * too many to keep open at once), so the number of rows is only limited by the disk. The sort is stable.
+ * <p>
+ * Sort keys are <code>field</code> or <code>field:desc</code>, dotted for nested fields. In both directions numbers go
+ * first, then everything else (compared as text) and nulls last; the direction applies within each of them.
+ */
+public class GoldenSort implements Closeable {
+
+    private static final Gson GSON = new Gson();
+    // Estimated overhead of a buffered row besides its JSON characters
+    private static final int ROW_OVERHEAD = 64;
+    // Maximum runs merged at once
+    private static final int MAX_FAN_IN = 64;
+
+    private final List<String> fields = new ArrayList<>();
+    private final List<Boolean> descending = new ArrayList<>();
+    private final long budget;
+    private final Comparator<Item> comparator;
+    private final List<Item> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long buffered = 0;
+    private long sequence = 0;
+
+
+    // Builders
+    // =================================================================================================================
+
+    /**
+     * Creates a sort.
+     * @param keys Sort keys: <code>field</code> or <code>field:desc</code> (also <code>:asc</code>).
+     * @param budget Memory for buffered rows, in bytes.
+     * @exception IllegalArgumentException If a key is not valid.
+     */
+    public GoldenSort(List<String> keys, long budget) {
+        if (keys == null || keys.isEmpty() || budget < 1)
+            throw new IllegalArgumentException("invalid sort");
+        for (String key : keys) {
+            int colon = key.lastIndexOf(':');
+            String direction = colon < 0 ?"asc" :key.substring(colon + 1).trim().toLowerCase();
+            String field = colon < 0 ?key.trim() :key.substring(0, colon).trim();
+            if (field.isEmpty() || (!direction.equals("asc") && !direction.equals("desc")))
+                throw new IllegalArgumentException("invalid sort key '" + key + "' (must be field or field:desc)");
+            fields.add(field);
+            descending.add(direction.equals("desc"));
+        }
+        this.budget = budget;
+        this.comparator = ((Comparator<Item>) this::compareKeys).thenComparingLong(Item::sequence);
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Adds a row, spilling the buffered rows to disk if the budget is exceeded.
+     * @param row Row.
+     * @exception IOException If a run cannot be written.
+     */
+    public void add(Map row) throws IOException {
+        String json = GSON.toJson(row);
+        buffer.add(new Item(keys(row), json, sequence++));
+        buffered += json.length() * 2L + ROW_OVERHEAD;
+        if (buffered >= budget)
+            spill();
+    }
+
+    /**
+     * Sends the rows, sorted, to a consumer.
+     * @param consumer Consumer.
+     * @exception IOException If the runs cannot be read or the consumer fails.
+     */
+    public void forEach(RowConsumer consumer) throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(comparator);
+            for (Item item : buffer)
+                consumer.accept(GSON.fromJson(item.json, Map.class));
+            buffer.clear();
+            return;
+        }
+        if (!buffer.isEmpty())
+            spill();
+        while (runs.size() > MAX_FAN_IN) {
+            // Merge pass: consecutive groups of runs become single runs, in the same order
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                List<Path> group = runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()));
+                Path run = Files.createTempFile("golden-sort", ".ndjson");
+                merged.add(run);
+                try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+                    merge(group, (json, row) -> {
+                        writer.write(json);
+                        writer.write('\n');
+                    });
+                }
+            }
+            delete(runs);
+            runs.clear();
+            runs.addAll(merged);
+        }
+        merge(runs, (json, row) -> consumer.accept(row));
+    }
+
+    /**
+     * @return Number of runs spilled to disk so far.
+     */
+    public int getRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Deletes the runs.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.clear();
+        delete(runs);
+        runs.clear();
+    }
+
+    /**
+     * Receives sorted rows.
+     */
+    public interface RowConsumer {
+        void accept(Map row) throws IOException;
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private void spill() throws IOException {
+        buffer.sort(comparator);
+        Path run = Files.createTempFile("golden-sort", ".ndjson");
+        runs.add(run);
+        try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (Item item : buffer) {
+                writer.write(item.json);
+                writer.write('\n');
+            }
+        }
+        buffer.clear();
+        buffered = 0;
+    }
+
+    /**
+     * Merges sorted runs. Ties are resolved by run order, and rows of a run are in their original order, so the merge
+     * is stable.
+     */
+    private void merge(List<Path> paths, MergeConsumer consumer) throws IOException {
+        List<BufferedReader> readers = new ArrayList<>();
+        try {
+            PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> comparator.compare(a.item, b.item));
+            for (Path path : paths) {
+                BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+                readers.add(reader);
+                Cursor cursor = new Cursor(reader, readers.size() - 1);
+                if (cursor.advance())
+                    queue.add(cursor);
+            }
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                consumer.accept(cursor.item.json, cursor.row);
+                if (cursor.advance())
+                    queue.add(cursor);
+            }
+        } finally {
+            for (BufferedReader reader : readers)
+                reader.close();
+        }
+    }
+
+    private List<Object> keys(Map row) {
+        List<Object> keys = new ArrayList<>(fields.size());
+        for (String field : fields)
+            keys.add(GoldenPrinter.Output.value(row, field));
+        return keys;
+    }
+
+    // Values are ranked by type (numbers, text, null) in both directions and only compared within their type, which
+    // keeps the order transitive when a field mixes numbers and text
+    private int compareKeys(Item a, Item b) {
+        for (int i = 0; i < fields.size(); i++) {
+            Object x = a.keys.get(i);
+            Object y = b.keys.get(i);
+            int c = Integer.compare(rank(x), rank(y));
+            if (c == 0 && x != null) {
+                c = x instanceof Number n ?Double.compare(n.doubleValue(), ((Number) y).doubleValue()) :x.toString().compareTo(y.toString());
+                if (descending.get(i))
+                    c = -c;
+            }
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+
+    private static int rank(Object value) {
+        return value == null ?2 :value instanceof Number ?0 :1;
+    }
+
+    private static void delete(List<Path> paths) throws IOException {
+        for (Path path : paths)
+            Files.deleteIfExists(path);
+    }
+
+    private interface MergeConsumer {
+        void accept(String json, Map row) throws IOException;
+    }
+
+    private record Item(List<Object> keys, String json, long sequence) {
+    }
+
+    /**
+     * Current row of a run. The sequence of a merged row is its run, which keeps ties in run order.
+     */
+    private class Cursor {
+        private final BufferedReader reader;
+        private final int index;
+        private Item item;
+        private Map row;
+
+        Cursor(BufferedReader reader, int index) {
+            this.reader = reader;
+            this.index = index;
+        }
+
+        boolean advance() throws IOException {
+            String line = reader.readLine();
+            if (line == null)
+                return false;
+            row = GSON.fromJson(line, Map.class);
+            item = new Item(keys(row), line, index);
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,436 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.stream.JsonWriter;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Records where the time of a command goes: JVM startup, argument parsing, API initialization, HTTP calls, body
+ * download, JSON parsing, filtering and rendering. Prints a breakdown with <code>--timings</code> and writes the spans
+ * (including one per HTTP call, with byte counts) in Chrome trace-event format with <code>--trace-file</code>.
+ * <p>
+ * When timings are off the command uses a disabled recorder, whose methods return right away without reading the
+ * clock.
+ */
+public class GoldenTimings {
+
+    // Phases
+    public static final String JVM = "jvm startup";
+    public static final String PARSE = "parse arguments";
+    public static final String API = "initialize api";
+    public static final String HTTP = "http";
+    public static final String DOWNLOAD = "download";
+    public static final String JSON = "json parsing";
+    public static final String FILTER = "filter";
+    public static final String RENDER = "rendering";
+    private static final List<String> PHASES = List.of(JVM, PARSE, API, HTTP, DOWNLOAD, JSON, FILTER, RENDER);
+
+    private static final GoldenTimings DISABLED = new GoldenTimings(false, false, null, System::nanoTime);
+
+    private final boolean enabled;
+    private final boolean summary;
+    private final Path traceFile;
+    private final LongSupplier clock;
+    private final Map<String, LongAdder> totals = new ConcurrentHashMap<>();
+    private final LongAdder httpCalls = new LongAdder();
+    private final LongAdder httpBytes = new LongAdder();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final List<Event> events = new ArrayList<>();
+    // Download time of the current thread, to tell it apart from the parsing that pulls the body
+    private final ThreadLocal<long[]> threadDownload = ThreadLocal.withInitial(() -> new long[1]);
+    private long origin;
+
+
+    // Builders
+    // =================================================================================================================
+
+    /**
+     * Creates an enabled recorder.
+     * @param summary Print the breakdown when the command finishes.
+     * @param traceFile Trace file written when the command finishes, or null.
+     */
+    public GoldenTimings(boolean summary, Path traceFile) {
+        this(true, summary, traceFile, System::nanoTime);
+    }
+
+    /**
+     * Creates a recorder with a given clock.
+     * @param enabled Record (otherwise the clock is never read).
+     * @param summary Print the breakdown when the command finishes.
+     * @param traceFile Trace file written when the command finishes, or null.
+     * @param clock Clock, in nanoseconds.
+     */
+    GoldenTimings(boolean enabled, boolean summary, Path traceFile, LongSupplier clock) {
+        this.enabled = enabled;
+        this.summary = summary;
+        this.traceFile = traceFile;
+        this.clock = clock;
+    }
+
+    /**
+     * Retrieves the disabled recorder.
+     * @return Recorder that records nothing.
+     */
+    public static GoldenTimings disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Retrieves the recorder of the command run by the current thread.
+     * @return Recorder, disabled if none.
+     */
+    public static GoldenTimings current() {
+        Context ctx = Context.current();
+        return ctx == null ?DISABLED :ctx.getTimings();
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the clock.
+     * @return Current time in nanoseconds, or 0 when disabled.
+     */
+    public long now() {
+        return enabled ?clock.getAsLong() :0;
+    }
+
+    /**
+     * Retrieves the time spent downloading response bodies by the current thread.
+     * @return Nanoseconds, or 0 when disabled.
+     */
+    public long downloaded() {
+        return enabled ?threadDownload.get()[0] :0;
+    }
+
+    /**
+     * Records a span that ends now and adds it to its phase.
+     * @param phase Phase.
+     * @param start Start time, as returned by {@link #now()}.
+     */
+    public void span(String phase, long start) {
+        if (!enabled)
+            return;
+        long end = clock.getAsLong();
+        total(phase).add(end - start);
+        event(phase, "phase", start, end, null);
+    }
+
+    /**
+     * Records the JVM startup: from the JVM start to indicated time.
+     * @param end End time, as returned by {@link #now()}.
+     */
+    public void jvmStartup(long end) {
+        if (!enabled)
+            return;
+        long elapsedMs = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        long start = clock.getAsLong() - elapsedMs * 1_000_000;
+        total(JVM).add(end - start);
+        event(JVM, "phase", start, end, null);
+    }
+
+    /**
+     * Adds the time elapsed since indicated start to a phase, without recording a span. Meant for phases made of many
+     * short intervals, such as rendering rows.
+     * @param phase Phase.
+     * @param start Start time, as returned by {@link #now()}.
+     * @return Current time, to chain intervals.
+     */
+    public long add(String phase, long start) {
+        if (!enabled)
+            return 0;
+        long end = clock.getAsLong();
+        total(phase).add(end - start);
+        return end;
+    }
+
+    /**
+     * Adds the time elapsed since indicated start to a phase, excluding the time the current thread spent downloading
+     * meanwhile (e.g. parsing a body while it streams in).
+     * @param phase Phase.
+     * @param start Start time, as returned by {@link #now()}.
+     * @param downloaded Download time at start, as returned by {@link #downloaded()}.
+     * @return Current time, to chain intervals.
+     */
+    public long add(String phase, long start, long downloaded) {
+        if (!enabled)
+            return 0;
+        long end = clock.getAsLong();
+        total(phase).add(end - start - (threadDownload.get()[0] - downloaded));
+        return end;
+    }
+
+    /**
+     * Increments a counter, printed with the breakdown (e.g. retried calls).
+     * @param counter Counter name.
+     * @param n Increment.
+     */
+    public void count(String counter, long n) {
+        if (enabled)
+            counters.computeIfAbsent(counter, c -> new LongAdder()).add(n);
+    }
+
+    /**
+     * Records a span that ends now without adding it to a phase.
+     * @param name Name.
+     * @param category Category.
+     * @param start Start time, as returned by {@link #now()}.
+     * @param args Arguments shown with the span, or null.
+     */
+    public void event(String name, String category, long start, Map<String, Object> args) {
+        if (enabled)
+            event(name, category, start, clock.getAsLong(), args);
+    }
+
+    /**
+     * Completes the recording of a command: prints the breakdown and writes the trace file, as requested.
+     * @param err Stream to print the breakdown to.
+     * @param start Start time of the command, as returned by {@link #now()}.
+     */
+    public void finish(PrintStream err, long start) {
+        if (!enabled)
+            return;
+        Map<String, Object> args = new LinkedHashMap<>();
+        for (String phase : PHASES) {
+            if (totals.containsKey(phase))
+                args.put(phase + " (ms)", millis(totals.get(phase).sum()));
+        }
+        args.put("http calls", httpCalls.sum());
+        args.put("http bytes", httpBytes.sum());
+        counters.forEach((counter, n) -> args.put(counter, n.sum()));
+        event("command", "command", start, clock.getAsLong(), args);
+        if (summary)
+            printSummary(err);
+        if (traceFile != null) {
+            try {
+                writeTrace(traceFile);
+            } catch (IOException e) {
+                err.println("Error: cannot write trace file '" + traceFile + "': " + e.getMessage());
+            }
+        }
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private LongAdder total(String phase) {
+        return totals.computeIfAbsent(phase, p -> new LongAdder());
+    }
+
+    private void event(String name, String category, long start, long end, Map<String, Object> args) {
+        synchronized (events) {
+            if (events.isEmpty() || start < origin)
+                origin = start;
+            events.add(new Event(name, category, start, end, Thread.currentThread().threadId(), args));
+        }
+    }
+
+    private void download(long nanos, long bytes) {
+        total(DOWNLOAD).add(nanos);
+        threadDownload.get()[0] += nanos;
+        httpBytes.add(bytes);
+    }
+
+    // Phases overlap when calls run concurrently: HTTP and download times are summed over calls
+    private void printSummary(PrintStream err) {
+        long end = clock.getAsLong();
+        err.println("Timings (ms):");
+        for (String phase : PHASES) {
+            LongAdder total = totals.get(phase);
+            if (total == null)
+                continue;
+            String line = String.format("  %-18s %10.1f", phase, millis(total.sum()));
+            if (phase.equals(HTTP))
+                line += String.format("  %d call(s), %s", httpCalls.sum(), bytes(httpBytes.sum()));
+            err.println(line);
+        }
+        synchronized (events) {
+            err.println(String.format("  %-18s %10.1f", "total", millis(end - origin)));
+        }
+        new TreeMap<>(counters).forEach((counter, n) -> err.println(String.format("  %-18s %8d", counter, n.sum())));
+        err.flush();
+    }
+
+    private void writeTrace(Path file) throws IOException {
+        long pid = ProcessHandle.current().pid();
+        try (Writer out = Files.newBufferedWriter(file); JsonWriter json = new JsonWriter(out)) {
+            json.beginObject();
+            json.name("displayTimeUnit").value("ms");
+            json.name("traceEvents").beginArray();
+            synchronized (events) {
+                for (Event e : events) {
+                    json.beginObject();
+                    json.name("name").value(e.name);
+                    json.name("cat").value(e.category);
+                    json.name("ph").value("X");
+                    json.name("ts").value((e.start - origin) / 1000d);
+                    json.name("dur").value((e.end - e.start) / 1000d);
+                    json.name("pid").value(pid);
+                    json.name("tid").value(e.thread);
+                    if (e.args != null) {
+                        json.name("args").beginObject();
+                        for (Map.Entry<String, Object> a : e.args.entrySet()) {
+                            json.name(a.getKey());
+                            if (a.getValue() instanceof Number n) {
+                                json.value(n);
+                            } else {
+                                json.value(String.valueOf(a.getValue()));
+                            }
+                        }
+                        json.endObject();
+                    }
+                    json.endObject();
+                }
+            }
+            json.endArray();
+            json.endObject();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+        if (bytes < 1024 * 1024)
+            return String.format("%.1f KB", bytes / 1024d);
+        return String.format("%.1f MB", bytes / (1024d * 1024));
+    }
+
+    private record Event(String name, String category, long start, long end, long thread, Map<String, Object> args) { }
+
+
+    // HTTP calls
+    // =================================================================================================================
+
+    /**
+     * Records a span per HTTP call made while a command with timings runs: from the request until the body is read,
+     * with the status, the time to the response headers and the body size.
+     */
+    public static class HttpInterceptor implements Interceptor {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            GoldenTimings timings = current();
+            Request request = chain.request();
+            if (!timings.isEnabled())
+                return chain.proceed(request);
+
+            long start = timings.clock.getAsLong();
+            Response response = chain.proceed(request);
+            long headers = timings.clock.getAsLong();
+            timings.total(HTTP).add(headers - start);
+            timings.httpCalls.increment();
+
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("url", request.urlString());
+            args.put("status", response.code());
+            args.put("headers (ms)", millis(headers - start));
+            String name = request.method() + " " + request.httpUrl().encodedPath();
+            if (response.body() == null) {
+                timings.event(name, HTTP, start, headers, args);
+                return response;
+            }
+            return response.newBuilder().body(new TimedBody(response.body(), timings, name, start, args)).build();
+        }
+    }
+
+    /**
+     * Response body that counts the bytes read and the time spent reading them. The call span is recorded when the
+     * body is exhausted or closed.
+     */
+    private static class TimedBody extends ResponseBody {
+        private final ResponseBody body;
+        private final GoldenTimings timings;
+        private final String name;
+        private final long start;
+        private final Map<String, Object> args;
+        private BufferedSource source;
+        private long bytes = 0;
+        private boolean recorded = false;
+
+        TimedBody(ResponseBody body, GoldenTimings timings, String name, long start, Map<String, Object> args) {
+            this.body = body;
+            this.timings = timings;
+            this.name = name;
+            this.start = start;
+            this.args = args;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return body.contentLength();
+        }
+
+        @Override
+        public synchronized BufferedSource source() throws IOException {
+            if (source == null) {
+                source = Okio.buffer(new ForwardingSource(body.source()) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long t = timings.clock.getAsLong();
+                        long read = super.read(sink, byteCount);
+                        timings.download(timings.clock.getAsLong() - t, Math.max(read, 0));
+                        if (read == -1) {
+                            record();
+                        } else {
+                            bytes += read;
+                        }
+                        return read;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        record();
+                        super.close();
+                    }
+                });
+            }
+            return source;
+        }
+
+        private void record() {
+            if (recorded)
+                return;
+            recorded = true;
+            args.put("bytes", bytes);
+            timings.event(name, HTTP, start, timings.clock.getAsLong(), args);
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resilient transport, installed as the outermost interceptor of the API client.
+ * <ul>
+ *     <li>Read calls (GET, HEAD) failing with 429, 502, 503, 504 or an I/O error are retried up to
+ *     <code>--retries</code> times, waiting an exponential backoff with full jitter or the <code>Retry-After</code>
+ *     indicated by the server, whichever is longer.</li>
+ *     <li>A circuit breaker opens after several consecutive failures: calls wait until it cools down, then a single
+ *     trial call decides whether it closes again or stays open. Bulk modes (<code>--all</code>, <code>--batch</code>,
+ *     several IDs) back off together instead of hammering a struggling backend.</li>
+ * </ul>
+ * Retries, exhausted retries and circuit breaker waits are counted in the command timings (<code>--timings</code>).
+ */
+public class GoldenTransport implements Interceptor {
+
+    // Retries
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 502, 503, 504);
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD");
+    private static final long BASE_DELAY_MS = 200;
+    private static final long MAX_DELAY_MS = 10_000;
+    private static final long MAX_RETRY_AFTER_MS = 120_000;
+
+    // Circuit breaker
+    private static final int BREAKER_THRESHOLD = 5;
+    private static final long BREAKER_OPEN_MS = 10_000;
+
+    // Counters
+    public static final String COUNTER_RETRIES = "http retries";
+    public static final String COUNTER_EXHAUSTED = "http retries exhausted";
+    public static final String COUNTER_BREAKER_WAITS = "breaker waits";
+    public static final String COUNTER_BREAKER_OPENED = "breaker opened";
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openUntil = 0;
+    private boolean trialInFlight = false;
+
+
+    // Public methods
+    // =================================================================================================================
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Context ctx = Context.current();
+        int retries = ctx == null ?0 :ctx.getRetries();
+        boolean read = READ_METHODS.contains(request.method());
+        GoldenTimings timings = GoldenTimings.current();
+
+        for (int attempt = 0; ; attempt++) {
+            acquire(timings);
+            long delay = backoff(attempt);
+            try {
+                Response response = chain.proceed(request);
+                boolean failed = RETRYABLE_STATUS.contains(response.code());
+                release(!failed, timings);
+                if (!failed || !read)
+                    return response;
+                long retryAfter = retryAfter(response);
+                if (attempt >= retries || retryAfter > MAX_RETRY_AFTER_MS) {
+                    timings.count(COUNTER_EXHAUSTED, 1);
+                    return response;
+                }
+                delay = Math.max(delay, retryAfter);
+                response.body().close();
+            } catch (IOException e) {
+                release(false, timings);
+                if (!read || Thread.currentThread().isInterrupted())
+                    throw e;
+                if (attempt >= retries) {
+                    timings.count(COUNTER_EXHAUSTED, 1);
+                    throw e;
+                }
+            }
+            timings.count(COUNTER_RETRIES, 1);
+            sleep(delay);
+        }
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    /**
+     * Waits until the circuit breaker lets a call through: always when closed, after cooling down when open, and
+     * only one trial call at a time when half open.
+     */
+    private void acquire(GoldenTimings timings) throws IOException {
+        lock.lock();
+        try {
+            boolean waited = false;
+            while (true) {
+                if (state == State.CLOSED)
+                    break;
+                long now = System.currentTimeMillis();
+                if (state == State.OPEN && now >= openUntil) {
+                    state = State.HALF_OPEN;
+                    trialInFlight = false;
+                }
+                if (state == State.HALF_OPEN && !trialInFlight) {
+                    trialInFlight = true;
+                    break;
+                }
+                waited = true;
+                if (state == State.OPEN) {
+                    changed.await(openUntil - now, TimeUnit.MILLISECONDS);
+                } else {
+                    changed.await();
+                }
+            }
+            if (waited)
+                timings.count(COUNTER_BREAKER_WAITS, 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the circuit breaker");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports the outcome of a call to the circuit breaker. A success closes it, a failed trial or too many
+     * consecutive failures open it.
+     */
+    private void release(boolean success, GoldenTimings timings) {
+        lock.lock();
+        try {
+            if (success) {
+                failures = 0;
+                state = State.CLOSED;
+            } else {
+                failures++;
+                if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= BREAKER_THRESHOLD)) {
+                    state = State.OPEN;
+                    openUntil = System.currentTimeMillis() + BREAKER_OPEN_MS;
+                    timings.count(COUNTER_BREAKER_OPENED, 1);
+                }
+            }
+            trialInFlight = false;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calculates the backoff of a retry: a random delay (full jitter) up to an exponentially growing cap.
+     */
+    private long backoff(int attempt) {
+        long cap = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Parses the <code>Retry-After</code> header: seconds or an HTTP date.
+     * @return Milliseconds to wait, 0 if absent or not valid.
+     */
+    private long retryAfter(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null || value.isBlank())
+            return 0;
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // not seconds
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to retry");
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conditional requests for <code>--watch</code>, installed as an interceptor of the API client. Calls executed
+ * through a {@link Session} remember the <code>ETag</code> / <code>Last-Modified</code> and body of their last
+ * response in memory and send <code>If-None-Match</code> / <code>If-Modified-Since</code> the next time: a
+ * <code>304 Not Modified</code> is answered with the remembered body, and the session tells the caller that nothing
+ * changed so it can skip decoding and rendering altogether. When something changed, the session also works out which
+ * rows (keyed by <code>id</code>) were added, changed or removed since the previous run.
+ */
+public class GoldenWatch implements Interceptor {
+
+    // Session of the call being executed by the current thread (null when the call is not watched)
+    private static final ThreadLocal<Session> session = new ThreadLocal<>();
+
+
+    // Public methods
+    // =================================================================================================================
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Session s = session.get();
+        if (s == null || !"GET".equals(request.method()))
+            return chain.proceed(request);
+
+        String key = request.urlString() + '\0' + request.header("Authorization");
+        Entry entry = s.entries.get(key);
+        Request.Builder builder = request.newBuilder();
+        if (entry != null && entry.etag != null)
+            builder.header("If-None-Match", entry.etag);
+        if (entry != null && entry.lastModified != null)
+            builder.header("If-Modified-Since", entry.lastModified);
+        Response response = chain.proceed(builder.build());
+
+        if (response.code() == 304 && entry != null) {
+            response.body().close();
+            s.modified = false;
+            return response.newBuilder()
+                    .code(200)
+                    .body(ResponseBody.create(entry.contentType, entry.body))
+                    .build();
+        }
+        s.modified = true;
+        if (!response.isSuccessful() || (response.header("ETag") == null && response.header("Last-Modified") == null)) {
+            s.entries.remove(key);
+            return response;
+        }
+        MediaType contentType = response.body().contentType();
+        byte[] body = response.body().bytes();
+        s.entries.put(key, new Entry(response.header("ETag"), response.header("Last-Modified"), contentType, body));
+        return response.newBuilder().body(ResponseBody.create(contentType, body)).build();
+    }
+
+    /**
+     * Watch session: the validators and bodies of the calls it executes and the rows last rendered, kept in memory.
+     */
+    public static class Session {
+        private final Map<String, Entry> entries = new HashMap<>();
+        private boolean modified = true;
+        private Map<Object, Map> rows = null;
+        private List<Object> removed = List.of();
+
+        /**
+         * Executes a call conditionally.
+         * @param call Call.
+         * @return Response.
+         * @exception IOException If the call fails.
+         */
+        public Response execute(Call call) throws IOException {
+            session.set(this);
+            modified = true;
+            try {
+                return call.execute();
+            } finally {
+                session.remove();
+            }
+        }
+
+        /**
+         * @return False if the last call was answered with <code>304 Not Modified</code>.
+         */
+        public boolean isModified() {
+            return modified;
+        }
+
+        /**
+         * Compares rows with the previous ones. Rows are matched by <code>id</code> (or by their whole content if they
+         * have none), so reordering is not a change.
+         * @param current Current rows.
+         * @return Rows added or changed since the previous call (all of them the first time), in order.
+         */
+        public List<Map> changes(List<Map> current) {
+            Map<Object, Map> next = new LinkedHashMap<>();
+            List<Map> changed = new ArrayList<>();
+            for (Map row : current) {
+                Object id = row.get("id");
+                Object key = id != null ?id :row;
+                next.put(key, row);
+                if (rows == null || !row.equals(rows.get(key)))
+                    changed.add(row);
+            }
+            removed = new ArrayList<>();
+            if (rows != null) {
+                for (Map.Entry<Object, Map> e : rows.entrySet()) {
+                    if (!next.containsKey(e.getKey()))
+                        removed.add(e.getValue().get("id") != null ?e.getKey() :e.getValue());
+                }
+            }
+            rows = next;
+            return changed;
+        }
+
+        /**
+         * @return Rows (their IDs, if they have one) removed in the last call to {@link #changes(List)}.
+         */
+        public List<Object> getRemoved() {
+            return removed;
+        }
+    }
+
+    private record Entry(String etag, String lastModified, MediaType contentType, byte[] body) {
+    }
+
+}
@@ -1,12 +1,38 @@
 package com.trazadera.golden.cli.command;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.trazadera.golden.cli.Command;
 import com.trazadera.golden.cli.Context;
+import com.trazadera.golden.cli.GoldenFetcher;
+import com.trazadera.golden.cli.GoldenFilter;
 import com.trazadera.golden.restclient.model.GoldenBucketFullResponseDto;
 import org.apache.commons.cli.Option;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public abstract class BaseCommand extends Command {
 
+    // Seconds that nearly static metadata (entities, tables, resources) may be served from cache
+    protected static final long METADATA_CACHE_TTL = 300;
+    protected static final Gson GSON = new Gson();
+
+    // Sorting that keeps pages stable between runs (unless buckets are added or removed) and allows merge joins
+    protected static final List<String> SORTING_BY_ID = List.of("id");
+
     protected static final String OPTION_ENTITY = "entity";
     protected static final Option OPTION_OBJECT_ENTITY = Option.builder(null).longOpt(OPTION_ENTITY)
             .hasArg()
@@ -43,6 +69,15 @@ public abstract class BaseCommand extends Command {
             .desc("Task ID")
             .build();
 
+    protected static final String OPTION_IDS_FROM = "ids-from";
+    protected static final Option OPTION_OBJECT_IDS_FROM = Option.builder(null).longOpt(OPTION_IDS_FROM)
+            .hasArg()
+            .argName("file")
+            .numberOfArgs(1)
+            .required(false)
+            .desc("Read IDs from a file (or standard input with '-'), one or more per line")
+            .build();
+
     protected static final String OPTION_PAGE = "page";
     protected static final Option OPTION_OBJECT_PAGE = Option.builder(null).longOpt(OPTION_PAGE)
             .hasArg()
@@ -53,7 +88,7 @@ public abstract class BaseCommand extends Command {
             .build();
     protected static final int OPTION_DEFAULT_PAGE = 0;
 
-    protected static final String OPTION_PAGE_SIZE = "page";
+    protected static final String OPTION_PAGE_SIZE = "page-size";
     protected static final Option OPTION_OBJECT_PAGE_SIZE = Option.builder(null).longOpt(OPTION_PAGE_SIZE)
             .hasArg()
             .argName("number")
@@ -65,6 +100,123 @@ public abstract class BaseCommand extends Command {
 
 
 
+    // Pagination
+    // ================================================================================================================
+
+    @Override
+    public int getPage(Context context) {
+        return getIntegerOption(context, OPTION_PAGE, OPTION_DEFAULT_PAGE);
+    }
+
+    @Override
+    public int getPageSize(Context context) {
+        return getIntegerOption(context, OPTION_PAGE_SIZE, OPTION_DEFAULT_PAGE_SIZE);
+    }
+
+
+    // Fan-out
+    // ================================================================================================================
+
+    /**
+     * Builds an option that accepts one ID or a comma-separated list of IDs. It is not required, as IDs can also be
+     * read with <code>--ids-from</code>.
+     * @param option Option name.
+     * @param description Description.
+     * @return Option.
+     */
+    protected static Option idsOption(String option, String description) {
+        return Option.builder(null).longOpt(option)
+                .hasArg()
+                .argName("ids")
+                .numberOfArgs(1)
+                .required(false)
+                .desc(description + ", or a comma-separated list of IDs")
+                .build();
+    }
+
+    /**
+     * Retrieves the IDs given by an option (comma-separated) and by <code>--ids-from</code>.
+     * @param context Context object.
+     * @param option Option name.
+     * @return IDs in request order, without duplicates.
+     * @exception IOException If the IDs file cannot be read.
+     */
+    protected List<String> getIds(Context context, String option) throws IOException {
+        Set<String> ids = new LinkedHashSet<>();
+        addIds(ids, getOption(context, option));
+        String from = getOption(context, OPTION_IDS_FROM);
+        if (from != null) {
+            try (BufferedReader in = from.equals("-")
+                    ?new BufferedReader(new InputStreamReader(context.getIn(), StandardCharsets.UTF_8))
+                    :Files.newBufferedReader(context.resolvePath(from))) {
+                String line;
+                while ((line = in.readLine()) != null)
+                    addIds(ids, line);
+            } catch (NoSuchFileException e) {
+                throw new IllegalArgumentException("IDs file not found: " + from);
+            }
+        }
+        if (ids.isEmpty())
+            throw new IllegalArgumentException("missing IDs, use --" + option + " or --" + OPTION_IDS_FROM);
+        return List.copyOf(ids);
+    }
+
+    private void addIds(Set<String> ids, String value) {
+        if (value == null)
+            return;
+        for (String id : value.split(",")) {
+            if (!id.trim().isEmpty())
+                ids.add(id.trim());
+        }
+    }
+
+
+    // Self-driven subcommands
+    // ================================================================================================================
+
+    /**
+     * Extracts the items of a page: the page itself if it is an array or its first array property.
+     * @param body Page JSON.
+     * @return Items, in page order.
+     * @exception IOException If the page cannot be read.
+     */
+    protected static List<JsonElement> pageItems(byte[] body) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)) {
+            JsonElement page = GSON.fromJson(reader, JsonElement.class);
+            JsonArray array = null;
+            if (page != null && page.isJsonArray()) {
+                array = page.getAsJsonArray();
+            } else if (page != null && page.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> e : page.getAsJsonObject().entrySet()) {
+                    if (e.getValue().isJsonArray()) {
+                        array = e.getValue().getAsJsonArray();
+                        break;
+                    }
+                }
+            }
+            List<JsonElement> items = new ArrayList<>();
+            if (array != null)
+                array.forEach(items::add);
+            return items;
+        }
+    }
+
+    /**
+     * Prints a failed call to the error output.
+     * @param context Context object.
+     * @param result Failed call.
+     * @param what What was being fetched.
+     * @return HTTP code, to be used as exit code.
+     * @exception IOException If the error body cannot be read.
+     */
+    protected int printFailure(Context context, GoldenFetcher.Result result, String what) throws IOException {
+        int code = result.getResponse().code();
+        String body = result.getResponse().body() == null ?"" :result.getResponse().body().string();
+        context.getErr().println("Error [" + code + "] " + what + ": " + body);
+        return code;
+    }
+
+
     // Option methods
     // ================================================================================================================
 
@@ -75,6 +227,18 @@ public abstract class BaseCommand extends Command {
         return null;
     }
 
+    /**
+     * Retrieves the value the output filter requires for a field of the rows, to filter them on the server as well
+     * (see {@link GoldenFilter#pushdown(String, String)}). Only done with <code>--all</code>: a single page filtered
+     * on the server would be a different page of the results.
+     * @return Value, null if the filter does not constrain the field or not all pages are listed.
+     */
+    protected String pushdown(Context context, String field) {
+        if (context == null || !context.isAllPages())
+            return null;
+        return GoldenFilter.getInstance().pushdown(context.getOutputExpression(), field);
+    }
+
     protected int getIntegerOption(Context context, String option, int defaultValue) {
         if (context != null && context.getCommandLine() != null && context.getCommandLine().hasOption(option)) {
             try {
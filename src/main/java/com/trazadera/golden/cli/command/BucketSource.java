@@ -0,0 +1,173 @@
+package com.trazadera.golden.cli.command;
+
+import com.google.gson.JsonElement;
+import com.trazadera.golden.cli.Context;
+import com.trazadera.golden.cli.GoldenDiff;
+import com.trazadera.golden.cli.GoldenFetcher;
+import com.trazadera.golden.cli.GoldenQuery;
+import com.trazadera.golden.cli.GoldenSnapshot;
+import com.trazadera.golden.restclient.api.GoldenApi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sources of buckets sorted by ID: export files (NDJSON, gzip-compressed or not), snapshot directories and live
+ * environments (API URLs). All of them are read as streams.
+ */
+abstract class BucketSource implements GoldenDiff.Source, Closeable {
+
+    /**
+     * Opens a source.
+     * @param context Context object.
+     * @param source File, directory or URL.
+     * @param token API token for URLs, or null for the token of the command.
+     * @param entity Entity ID, required for URLs.
+     * @param pageSize Buckets per call, for URLs.
+     * @return Source.
+     * @exception IOException If the source cannot be opened.
+     */
+    static BucketSource open(Context context, String source, String token, String entity, int pageSize) throws IOException {
+        if (isUrl(source)) {
+            if (entity == null)
+                throw new IllegalArgumentException("missing entity, use --entity to compare URLs");
+            return new Live(context, source, token, entity, pageSize);
+        }
+        Path path = context.resolvePath(source);
+        if (Files.isDirectory(path))
+            return new Snapshot(path);
+        if (!Files.exists(path))
+            throw new IllegalArgumentException("source not found: " + source);
+        return new Export(path);
+    }
+
+    static boolean isUrl(String source) {
+        return source != null && (source.startsWith("http://") || source.startsWith("https://"));
+    }
+
+
+    // Sources
+    // =================================================================================================================
+
+    /**
+     * Export file, one bucket per line, as written by <code>export buckets</code>.
+     */
+    private static class Export extends BucketSource {
+        private final BufferedReader reader;
+
+        Export(Path path) throws IOException {
+            InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024);
+            in.mark(2);
+            boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+            in.reset();
+            reader = new BufferedReader(new InputStreamReader(gzip ?new GZIPInputStream(in, 64 * 1024) :in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public JsonElement next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank())
+                    return BaseCommand.GSON.fromJson(line, JsonElement.class);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Snapshot directory, as kept by <code>golden sync</code>.
+     */
+    private static class Snapshot extends BucketSource {
+        private final GoldenQuery query;
+        private final Iterator<GoldenSnapshot.Entry> entries;
+
+        Snapshot(Path dir) throws IOException {
+            query = GoldenQuery.open(dir);
+            entries = query.select(null, null).iterator();
+        }
+
+        @Override
+        public JsonElement next() throws IOException {
+            if (!entries.hasNext())
+                return null;
+            try (Reader reader = new InputStreamReader(query.read(entries.next()), StandardCharsets.UTF_8)) {
+                return BaseCommand.GSON.fromJson(reader, JsonElement.class);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            query.close();
+        }
+    }
+
+    /**
+     * Live environment: pages sorted by ID, fetched <code>--prefetch</code> pages ahead.
+     */
+    private static class Live extends BucketSource {
+        private final GoldenFetcher fetcher;
+        private final GoldenApi goldenApi;
+        private final String url;
+        private final String entity;
+        private final int pageSize;
+        private final Deque<JsonElement> buckets = new ArrayDeque<>();
+        private int next = 0;
+        private boolean last = false;
+
+        Live(Context context, String url, String token, String entity, int pageSize) {
+            this.fetcher = new GoldenFetcher(context.getPrefetch());
+            this.goldenApi = new GoldenApi(context.getApiClient(url, token));
+            this.url = url;
+            this.entity = entity;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public JsonElement next() throws IOException {
+            while (buckets.isEmpty() && !last) {
+                while (fetcher.canSubmit()) {
+                    int page = next++;
+                    fetcher.submit(() -> goldenApi.getBucketsCall(entity, page, pageSize, null, null, BaseCommand.SORTING_BY_ID, null, null));
+                }
+                GoldenFetcher.Result result;
+                try {
+                    result = fetcher.next();
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+                if (!result.isSuccessful()) {
+                    throw new IOException("Error [" + result.getResponse().code() + "] listing buckets of "
+                            + url + ": " + result.getResponse().body().string());
+                }
+                buckets.addAll(BaseCommand.pageItems(result.getBody()));
+                last = buckets.size() < pageSize;
+            }
+            return buckets.poll();
+        }
+
+        @Override
+        public void close() {
+            fetcher.close();
+        }
+    }
+
+}
@@ -5,6 +5,9 @@ import com.trazadera.golden.cli.Context;
 import com.trazadera.golden.restclient.api.EntityApi;
 import org.apache.commons.cli.Options;
 
+import java.io.IOException;
+import java.util.List;
+
 public class EntityCommand extends BaseCommand {
 
     private CommandInfo info;
@@ -12,7 +15,9 @@ public class EntityCommand extends BaseCommand {
     public EntityCommand() {
         info = new CommandInfo("entity", "Manage entities");
         info.addSubcommandInfo(new SubcommandInfo("list", "List entities", EMPTY_OPTIONS));
-        info.addSubcommandInfo(new SubcommandInfo("show", "Show entity", new Options().addOption(OPTION_OBJECT_ENTITY)));
+        info.addSubcommandInfo(new SubcommandInfo("show", "Show entities", new Options()
+                .addOption(idsOption(OPTION_ENTITY, "Entity ID"))
+                .addOption(OPTION_OBJECT_IDS_FROM)));
     }
 
     @Override
@@ -20,12 +25,27 @@ public class EntityCommand extends BaseCommand {
         return info;
     }
 
+    @Override
+    public long getCacheTtl(Context context) {
+        return "list".equals(context.getSubcommand()) ?METADATA_CACHE_TTL :0;
+    }
+
+    @Override
+    public List<String> getIds(Context context) throws IOException {
+        return "show".equals(context.getSubcommand()) ?getIds(context, OPTION_ENTITY) :List.of();
+    }
+
+    @Override
+    public Call executeId(Context context, String id) throws Exception {
+        return new EntityApi(context.getApiClient()).getEntityCall(id, null, null);
+    }
+
     @Override
     public Call execute(Context context) throws Exception {
         EntityApi entityApi = new EntityApi(context.getApiClient());
         Call call = switch (context.getSubcommand()) {
             case "list" -> entityApi.getAllEntitiesCall(null, null);
-            case "show" -> entityApi.getEntityCall(getOption(context, OPTION_ENTITY), null, null);
+            case "show" -> executeId(context, getIds(context).get(0));
             default -> null;
         };
         return call;
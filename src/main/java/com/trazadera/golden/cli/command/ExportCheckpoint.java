@@ -0,0 +1,157 @@
+package com.trazadera.golden.cli.command;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Progress of an export, saved next to the output file (<code>&lt;file&gt;.checkpoint</code>) after every page: the
+ * next page, the size of the file after the last page written and the number of buckets written. The checkpoint is
+ * bound to the export that created it (entity, page size and <code>--full</code>), since resuming with different
+ * pages would corrupt the file.
+ */
+public class ExportCheckpoint {
+
+    private static final String SUFFIX = ".checkpoint";
+
+    private final Path file;
+    private final Path path;
+    private final Properties properties = new Properties();
+    private int page = 0;
+    private long offset = 0;
+    private long buckets = 0;
+
+
+    // Builders
+    // =================================================================================================================
+
+    private ExportCheckpoint(Path file) {
+        this.file = file;
+        this.path = Path.of(file + SUFFIX);
+    }
+
+    /**
+     * Loads the checkpoint of an interrupted export or starts a new one.
+     * @param file Output file.
+     * @param entity Entity exported.
+     * @param pageSize Buckets per page.
+     * @param full Whether full records are exported.
+     * @return Checkpoint.
+     * @exception IllegalArgumentException If the checkpoint belongs to a different export or is not valid, if the file
+     * is shorter than the checkpoint or if the file exists without a checkpoint.
+     * @exception IOException If the checkpoint cannot be read or written.
+     */
+    public static ExportCheckpoint open(Path file, String entity, int pageSize, boolean full) throws IOException {
+        ExportCheckpoint c = new ExportCheckpoint(file);
+        String signature = entity + "|" + pageSize + "|" + full;
+        if (Files.exists(c.path)) {
+            try (Reader reader = Files.newBufferedReader(c.path, StandardCharsets.UTF_8)) {
+                c.properties.load(reader);
+            }
+            if (!signature.equals(c.properties.getProperty("export")))
+                throw new IllegalArgumentException("checkpoint " + c.path + " belongs to a different export, remove it to start again");
+            try {
+                c.page = Integer.parseInt(c.properties.getProperty("page"));
+                c.offset = Long.parseLong(c.properties.getProperty("offset"));
+                c.buckets = Long.parseLong(c.properties.getProperty("buckets"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid checkpoint " + c.path + ", remove it to start again");
+            }
+            if (!Files.exists(file) || Files.size(file) < c.offset)
+                throw new IllegalArgumentException("file " + file + " is shorter than its checkpoint, remove the checkpoint to start again");
+        } else if (Files.exists(file)) {
+            throw new IllegalArgumentException("file " + file + " already exists");
+        } else {
+            c.properties.setProperty("export", signature);
+            c.save();
+        }
+        return c;
+    }
+
+
+    // Public methods
+    // =================================================================================================================
+
+    /**
+     * Opens the output file for writing after the last page recorded, discarding anything written after it (a page
+     * interrupted halfway).
+     * @return Channel positioned at the checkpoint offset.
+     * @exception IOException If the file cannot be opened.
+     */
+    public FileChannel openFile() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(offset);
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Records a page written and forced to disk.
+     * @param offset Size of the file after the page.
+     * @param buckets Buckets in the page.
+     * @exception IOException If the checkpoint cannot be written.
+     */
+    public void advance(long offset, int buckets) throws IOException {
+        this.page++;
+        this.offset = offset;
+        this.buckets += buckets;
+        save();
+    }
+
+    /**
+     * Deletes the checkpoint once the export is complete.
+     * @exception IOException If the checkpoint cannot be deleted.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * @return Next page to export.
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * @return Size of the file after the last page written.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return Buckets written.
+     */
+    public long getBuckets() {
+        return buckets;
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    private void save() throws IOException {
+        properties.setProperty("page", String.valueOf(page));
+        properties.setProperty("offset", String.valueOf(offset));
+        properties.setProperty("buckets", String.valueOf(buckets));
+        Path tmp = Path.of(path + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "golden export");
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.trazadera.golden.cli.command;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.squareup.okhttp.Call;
+import com.trazadera.golden.cli.Context;
+import com.trazadera.golden.cli.GoldenFetcher;
+import com.trazadera.golden.restclient.api.GoldenApi;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk export of all the buckets of an entity to a gzip-compressed NDJSON file (one bucket per line).
+ * <ul>
+ *     <li>Pages are fetched in parallel (<code>--prefetch</code> pages ahead) and written in order. With
+ *     <code>--full</code>, the full record of every bucket is fetched (<code>--parallel</code> at a time).</li>
+ *     <li>Each page is written as a separate gzip member, so the file is always a valid gzip stream up to the last
+ *     page written.</li>
+ *     <li>A checkpoint (<code>&lt;file&gt;.checkpoint</code>) records the next page and the size of the file after
+ *     every page. An interrupted export is resumed by running the same command line again; the checkpoint is deleted
+ *     once the export completes.</li>
+ * </ul>
+ * Pages are sorted by bucket ID, so they remain stable between runs as long as the entity is not being modified.
+ */
+public class ExportCommand extends BaseCommand {
+
+    private static final String OPTION_FILE = "file";
+    private static final String OPTION_FULL = "full";
+    private static final int EXPORT_PAGE_SIZE = 1000;
+    private CommandInfo info;
+
+    public ExportCommand() {
+        info = new CommandInfo("export", "Export data in bulk");
+
+        // Buckets
+        Options bucketsOptions = new Options();
+        bucketsOptions.addOption(OPTION_OBJECT_ENTITY);
+        bucketsOptions.addOption(Option.builder(null).longOpt(OPTION_FILE)
+                .hasArg()
+                .argName("file")
+                .numberOfArgs(1)
+                .required(true)
+                .desc("Output file (gzip-compressed NDJSON). An interrupted export to the same file is resumed")
+                .build());
+        bucketsOptions.addOption(Option.builder(null).longOpt(OPTION_FULL)
+                .required(false)
+                .desc("Export the full record of every bucket (one more call per bucket)")
+                .build());
+        bucketsOptions.addOption(Option.builder(null).longOpt(OPTION_PAGE_SIZE)
+                .hasArg()
+                .argName("number")
+                .numberOfArgs(1)
+                .required(false)
+                .desc("Buckets per call (positive integer). Default is " + EXPORT_PAGE_SIZE + ".")
+                .build());
+        info.addSubcommandInfo(new SubcommandInfo("buckets", "Export all buckets of an entity", bucketsOptions));
+    }
+
+    @Override
+    public CommandInfo info() {
+        return info;
+    }
+
+    @Override
+    public int getPageSize(Context context) {
+        return getIntegerOption(context, OPTION_PAGE_SIZE, EXPORT_PAGE_SIZE);
+    }
+
+    @Override
+    public boolean isRunnable(Context context) {
+        return "buckets".equals(context.getSubcommand());
+    }
+
+    @Override
+    public Call execute(Context context) throws Exception {
+        throw new IllegalStateException("subcommand '" + context.getSubcommand() + "' must be run");
+    }
+
+    @Override
+    public int run(Context context) throws Exception {
+        String entity = getOption(context, OPTION_ENTITY);
+        Path file = context.resolvePath(getOption(context, OPTION_FILE));
+        boolean full = context.getCommandLine().hasOption(OPTION_FULL);
+        int pageSize = getPageSize(context);
+        if (pageSize < 1)
+            throw new IllegalArgumentException("invalid page size '" + pageSize + "' (must be a positive integer)");
+
+        ExportCheckpoint checkpoint = ExportCheckpoint.open(file, entity, pageSize, full);
+        GoldenApi goldenApi = new GoldenApi(context.getApiClient());
+        try (FileChannel channel = checkpoint.openFile();
+             GoldenFetcher fetcher = new GoldenFetcher(context.getPrefetch())) {
+            int next = checkpoint.getPage();
+            boolean last = false;
+            while (!last) {
+                while (fetcher.canSubmit()) {
+                    int page = next++;
+                    fetcher.submit(() -> goldenApi.getBucketsCall(entity, page, pageSize, null, null, SORTING_BY_ID, null, null));
+                }
+                GoldenFetcher.Result result = fetcher.next();
+                if (!result.isSuccessful())
+                    return failure(context, result, "page " + checkpoint.getPage());
+                List<JsonElement> buckets = pageItems(result.getBody());
+                if (full) {
+                    int code = fetchFull(context, goldenApi, entity, buckets);
+                    if (code != 0)
+                        return code;
+                }
+                write(channel, buckets);
+                last = buckets.size() < pageSize;
+                checkpoint.advance(channel.position(), buckets.size());
+            }
+            checkpoint.delete();
+            context.getErr().println("Exported " + checkpoint.getBuckets() + " buckets to " + file);
+            return 0;
+        }
+    }
+
+
+    // Private methods
+    // =================================================================================================================
+
+    /**
+     * Replaces the buckets of a page with their full records, fetching them concurrently.
+     * @return 0 or the HTTP code of the first failed call.
+     */
+    private int fetchFull(Context context, GoldenApi goldenApi, String entity, List<JsonElement> buckets) throws Exception {
+        Deque<String> ids = new ArrayDeque<>();
+        for (JsonElement bucket : buckets) {
+            JsonElement id = bucket.isJsonObject() ?bucket.getAsJsonObject().get("id") :null;
+            if (id == null || !id.isJsonPrimitive())
+                throw new IllegalStateException("bucket without ID: " + bucket);
+            ids.add(id.getAsString());
+        }
+        try (GoldenFetcher fetcher = new GoldenFetcher(context.getParallelism())) {
+            for (int i = 0; i < buckets.size(); i++) {
+                while (!ids.isEmpty() && fetcher.canSubmit()) {
+                    String id = ids.poll();
+                    fetcher.submit(() -> goldenApi.getBucketCall(entity, id, null, null));
+                }
+                GoldenFetcher.Result result = fetcher.next();
+                if (!result.isSuccessful())
+                    return failure(context, result, "bucket '" + buckets.get(i).getAsJsonObject().get("id").getAsString() + "'");
+                try (Reader reader = new InputStreamReader(new ByteArrayInputStream(result.getBody()), StandardCharsets.UTF_8)) {
+                    buckets.set(i, GSON.fromJson(reader, JsonObject.class));
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the buckets as a gzip member and forces it to disk before the checkpoint moves past it.
+     */
+    private void write(FileChannel channel, List<JsonElement> buckets) throws IOException {
+        if (buckets.isEmpty())
+            return;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed, 64 * 1024), StandardCharsets.UTF_8)) {
+            for (JsonElement bucket : buckets) {
+                writer.write(bucket.toString());
+                writer.write('\n');
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(compressed.toByteArray());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        channel.force(false);
+    }
+
+    private int failure(Context context, GoldenFetcher.Result result, String what) throws IOException {
+        int code = printFailure(context, result, what);
+        context.getErr().println("Run the same command again to resume the export");
+        return code;
+    }
+
+}
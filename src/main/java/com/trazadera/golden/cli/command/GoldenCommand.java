@@ -1,41 +1,74 @@
 package com.trazadera.golden.cli.command;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.squareup.okhttp.Call;
 import com.trazadera.golden.cli.Context;
+import com.trazadera.golden.cli.GoldenDiff;
+import com.trazadera.golden.cli.GoldenFetcher;
+import com.trazadera.golden.cli.GoldenPrinter;
+import com.trazadera.golden.cli.GoldenQuery;
+import com.trazadera.golden.cli.GoldenSnapshot;
 import com.trazadera.golden.restclient.api.GoldenApi;
 import com.trazadera.golden.restclient.model.GoldenBucketFullResponseDto;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
 
 public class GoldenCommand extends BaseCommand {
 
     private static final String OPTION_INDEX = "index";
     private static final String OPTION_CLASSIFICATION = "classification";
     private static final String OPTION_BUCKET = "bucket";
+    private static final String OPTION_DIR = "dir";
+    private static final String OPTION_WATERMARK_FIELD = "watermark-field";
+    private static final String OPTION_LEFT = "left";
+    private static final String OPTION_RIGHT = "right";
+    private static final String OPTION_LEFT_TOKEN = "left-token";
+    private static final String OPTION_RIGHT_TOKEN = "right-token";
+    private static final String VARIABLE_LEFT_TOKEN = "GOLDEN_LEFT_TOKEN";
+    private static final String VARIABLE_RIGHT_TOKEN = "GOLDEN_RIGHT_TOKEN";
+    private static final int BULK_PAGE_SIZE = 1000;
+    private static final int DIFF_BATCH = 1000;
+    private static final String STATE_ENTITY = "entity";
+    private static final String STATE_FIELD = "watermark.field";
+    private static final String STATE_WATERMARK = "watermark";
     private CommandInfo info;
 
     public GoldenCommand() {
         info = new CommandInfo("golden", "Manage golden records");
 
         // List
-        Options listOptions = new Options();
-        listOptions.addOption(OPTION_OBJECT_ENTITY);
-        listOptions.addOption(Option.builder(null).longOpt(OPTION_INDEX)
+        Option indexOption = Option.builder(null).longOpt(OPTION_INDEX)
                 .hasArg()
                 .argName("id")
                 .numberOfArgs(1)
                 .required(false)
                 .desc("Index filter. Use filter ID or nothing to list all")
-                .build());
-        listOptions.addOption(Option.builder(null).longOpt(OPTION_CLASSIFICATION)
+                .build();
+        Option classificationOption = Option.builder(null).longOpt(OPTION_CLASSIFICATION)
                 .hasArg()
                 .argName("outcome")
                 .numberOfArgs(1)
                 .required(false)
                 .desc("Classification filter. Use classification outcome (" + GoldenBucketFullResponseDto.ClassificationEnum.values() + ") or nothing to list all")
-                .build());
+                .build();
+        Options listOptions = new Options();
+        listOptions.addOption(OPTION_OBJECT_ENTITY);
+        listOptions.addOption(indexOption);
+        listOptions.addOption(classificationOption);
         listOptions.addOption(OPTION_OBJECT_PAGE);
         listOptions.addOption(OPTION_OBJECT_PAGE_SIZE);
         info.addSubcommandInfo(new SubcommandInfo("list", "List buckets", listOptions));
@@ -43,14 +76,69 @@ public class GoldenCommand extends BaseCommand {
         // Show
         Options showOptions = new Options();
         showOptions.addOption(OPTION_OBJECT_ENTITY);
-        showOptions.addOption(Option.builder(null).longOpt(OPTION_BUCKET)
+        showOptions.addOption(idsOption(OPTION_BUCKET, "Bucket ID"));
+        showOptions.addOption(OPTION_OBJECT_IDS_FROM);
+        info.addSubcommandInfo(new SubcommandInfo("show", "Show buckets", showOptions));
+
+        // Sync
+        Option dirOption = Option.builder(null).longOpt(OPTION_DIR)
                 .hasArg()
-                .argName("id")
+                .argName("dir")
+                .numberOfArgs(1)
+                .required(true)
+                .desc("Snapshot directory, created on the first sync")
+                .build();
+        Options syncOptions = new Options();
+        syncOptions.addOption(OPTION_OBJECT_ENTITY);
+        syncOptions.addOption(dirOption);
+        syncOptions.addOption(Option.builder(null).longOpt(OPTION_WATERMARK_FIELD)
+                .hasArg()
+                .argName("field")
                 .numberOfArgs(1)
                 .required(true)
-                .desc("Bucket ID")
+                .desc("Bucket field that grows when a bucket changes (e.g. a modification date)")
                 .build());
-        info.addSubcommandInfo(new SubcommandInfo("show", "Show bucket", showOptions));
+        syncOptions.addOption(Option.builder(null).longOpt(OPTION_PAGE_SIZE)
+                .hasArg()
+                .argName("number")
+                .numberOfArgs(1)
+                .required(false)
+                .desc("Buckets per call (positive integer). Default is " + BULK_PAGE_SIZE + ".")
+                .build());
+        info.addSubcommandInfo(new SubcommandInfo("sync", "Update a local snapshot with the buckets changed since the last sync, printing them as NDJSON", syncOptions));
+
+        // Query
+        Options queryOptions = new Options();
+        queryOptions.addOption(dirOption);
+        queryOptions.addOption(idsOption(OPTION_BUCKET, "Bucket ID (shows buckets instead of listing them)"));
+        queryOptions.addOption(OPTION_OBJECT_IDS_FROM);
+        queryOptions.addOption(indexOption);
+        queryOptions.addOption(classificationOption);
+        queryOptions.addOption(OPTION_OBJECT_PAGE);
+        queryOptions.addOption(OPTION_OBJECT_PAGE_SIZE);
+        info.addSubcommandInfo(new SubcommandInfo("query", "List or show buckets from a local snapshot, without calling the API", queryOptions));
+
+        // Diff
+        Options diffOptions = new Options();
+        diffOptions.addOption(sourceOption(OPTION_LEFT, "Left (old) buckets"));
+        diffOptions.addOption(sourceOption(OPTION_RIGHT, "Right (new) buckets"));
+        diffOptions.addOption(tokenOption(OPTION_LEFT_TOKEN, "left", VARIABLE_LEFT_TOKEN));
+        diffOptions.addOption(tokenOption(OPTION_RIGHT_TOKEN, "right", VARIABLE_RIGHT_TOKEN));
+        diffOptions.addOption(Option.builder(null).longOpt(OPTION_ENTITY)
+                .hasArg()
+                .argName("id")
+                .numberOfArgs(1)
+                .required(false)
+                .desc("Entity ID, required to compare URLs")
+                .build());
+        diffOptions.addOption(Option.builder(null).longOpt(OPTION_PAGE_SIZE)
+                .hasArg()
+                .argName("number")
+                .numberOfArgs(1)
+                .required(false)
+                .desc("Buckets per call, for URLs (positive integer). Default is " + BULK_PAGE_SIZE + ".")
+                .build());
+        info.addSubcommandInfo(new SubcommandInfo("diff", "Compare the buckets of two export files, snapshots or environments", diffOptions));
     }
 
     @Override
@@ -59,26 +147,309 @@ public class GoldenCommand extends BaseCommand {
     }
 
     @Override
-    public Call execute(Context context) throws Exception {
+    public boolean isPaginated(Context context) {
+        return "list".equals(context.getSubcommand()) || "query".equals(context.getSubcommand());
+    }
+
+    @Override
+    public Call executePage(Context context, int page) throws Exception {
+        GoldenApi goldenApi = new GoldenApi(context.getApiClient());
+        String entity = getOption(context, OPTION_ENTITY);
+        String index = getOption(context, OPTION_INDEX);
+        String classification = getOption(context, OPTION_CLASSIFICATION);
+
+        // With --all, filters on index or classification are evaluated by the server too (an unknown classification is
+        // left to the local filter, which matches nothing, rather than rejected by the server)
+        if (index == null)
+            index = pushdown(context, OPTION_INDEX);
+        if (classification == null) {
+            String pushed = pushdown(context, OPTION_CLASSIFICATION);
+            if (Arrays.stream(GoldenBucketFullResponseDto.ClassificationEnum.values()).anyMatch(c -> c.name().equals(pushed)))
+                classification = pushed;
+        }
+        List<String> sorting = null;
+        return goldenApi.getBucketsCall(entity, page, getPageSize(context), index, classification, sorting, null, null);
+    }
+
+    @Override
+    public List<String> getIds(Context context) throws IOException {
+        return "show".equals(context.getSubcommand()) ?getIds(context, OPTION_BUCKET) :List.of();
+    }
+
+    @Override
+    public Call executeId(Context context, String id) throws Exception {
         GoldenApi goldenApi = new GoldenApi(context.getApiClient());
+        String entity = getOption(context, OPTION_ENTITY);
+        return goldenApi.getBucketCall(entity, id, null, null);
+    }
+
+    @Override
+    public boolean isRunnable(Context context) {
         return switch (context.getSubcommand()) {
-            case "list" -> {
-                String entity = getOption(context, OPTION_ENTITY);
-                String index = getOption(context, OPTION_INDEX);
-                String classification = getOption(context, OPTION_CLASSIFICATION);
-                List<String> sorting = null;
-                Integer page = getIntegerOption(context, OPTION_PAGE, 0);
-                Integer pageSize = getIntegerOption(context, OPTION_PAGE_SIZE, 10);
-                yield goldenApi.getBucketsCall(entity, page, pageSize, index, classification, sorting, null, null);
-            }
-            case "show" -> {
-                String entity = getOption(context, OPTION_ENTITY);
-                String bucket = getOption(context, OPTION_BUCKET);
-                yield goldenApi.getBucketCall(entity, bucket, null, null);
-            }
+            case "sync", "query", "diff" -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    public boolean isOffline(Context context) {
+        return switch (context.getSubcommand()) {
+            case "query" -> true;
+            case "diff" -> !BucketSource.isUrl(getOption(context, OPTION_LEFT)) && !BucketSource.isUrl(getOption(context, OPTION_RIGHT));
+            default -> false;
+        };
+    }
+
+    @Override
+    public int run(Context context) throws Exception {
+        return switch (context.getSubcommand()) {
+            case "sync" -> sync(context);
+            case "query" -> query(context);
+            case "diff" -> diff(context);
+            default -> throw new IllegalArgumentException("subcommand '" + context.getSubcommand() + "' cannot be run");
+        };
+    }
+
+    @Override
+    public Call execute(Context context) throws Exception {
+        return switch (context.getSubcommand()) {
+            case "list" -> executePage(context, getPage(context));
+            case "show" -> executeId(context, getIds(context).get(0));
             default -> null;
         };
     }
 
 
+    // Private methods
+    // =================================================================================================================
+
+    /**
+     * Syncs a snapshot: buckets are listed by watermark field, newest first, until one older than the watermark of
+     * the previous sync. Buckets with the same watermark as the previous sync are listed again, as some of them may
+     * have changed after it; unchanged buckets are recognized by their content hash and skipped. Deleted buckets are
+     * not detected.
+     * <p>
+     * Pages are offsets into a list that may change while it is read: a bucket that moves to the top shifts the rest
+     * down, so a page can repeat buckets of the previous one or, if pages arrive out of order, miss a bucket pushed
+     * into a page already read. When a bucket is listed twice the watermark is not advanced, so the next sync lists
+     * the whole run again. A bucket deleted during the sync shifts the rest up without repeating any, so a bucket can
+     * still be missed until it changes again.
+     */
+    private int sync(Context context) throws Exception {
+        String entity = getOption(context, OPTION_ENTITY);
+        String field = getOption(context, OPTION_WATERMARK_FIELD);
+        int pageSize = getIntegerOption(context, OPTION_PAGE_SIZE, BULK_PAGE_SIZE);
+        if (pageSize < 1)
+            throw new IllegalArgumentException("invalid page size '" + pageSize + "' (must be a positive integer)");
+
+        GoldenApi goldenApi = new GoldenApi(context.getApiClient());
+        // Ties are sorted by ID so they are not reordered between pages
+        List<String> sorting = List.of(field + ",desc", "id");
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(context.resolvePath(getOption(context, OPTION_DIR)))) {
+            Properties state = snapshot.getState();
+            if (state.getProperty(STATE_ENTITY) != null && !state.getProperty(STATE_ENTITY).equals(entity))
+                throw new IllegalArgumentException("snapshot belongs to entity '" + state.getProperty(STATE_ENTITY) + "'");
+            if (state.getProperty(STATE_FIELD) != null && !state.getProperty(STATE_FIELD).equals(field))
+                throw new IllegalArgumentException("snapshot is synced by field '" + state.getProperty(STATE_FIELD) + "'");
+            String watermark = state.getProperty(STATE_WATERMARK);
+            String newest = watermark;
+            int changed = 0, unchanged = 0;
+            Set<String> listed = new HashSet<>();
+            boolean shifted = false;
+
+            try (GoldenFetcher fetcher = new GoldenFetcher(context.getPrefetch())) {
+                int next = 0, received = 0;
+                boolean done = false;
+                while (!done) {
+                    while (fetcher.canSubmit()) {
+                        int page = next++;
+                        fetcher.submit(() -> goldenApi.getBucketsCall(entity, page, pageSize, null, null, sorting, null, null));
+                    }
+                    GoldenFetcher.Result result = fetcher.next();
+                    if (!result.isSuccessful())
+                        return printFailure(context, result, "page " + received);
+                    received++;
+                    List<JsonElement> buckets = pageItems(result.getBody());
+                    done = buckets.size() < pageSize;
+                    for (JsonElement bucket : buckets) {
+                        String value = value(bucket, field);
+                        if (watermark != null && compare(value, watermark) < 0) {
+                            done = true;
+                            break;
+                        }
+                        if (newest == null || compare(value, newest) > 0)
+                            newest = value;
+                        String id = value(bucket, "id");
+                        if (!listed.add(id))
+                            shifted = true;
+                        String line = bucket.toString();
+                        if (snapshot.put(id, attribute(bucket, "classification"), attribute(bucket, "index"), line)) {
+                            context.getOut().println(line);
+                            changed++;
+                        } else {
+                            unchanged++;
+                        }
+                    }
+                }
+            }
+
+            state.setProperty(STATE_ENTITY, entity);
+            state.setProperty(STATE_FIELD, field);
+            if (shifted) {
+                context.getErr().println("Warning: buckets moved between pages during the sync, the watermark is kept so "
+                        + "the next sync lists them again");
+                newest = watermark;
+            }
+            if (newest != null)
+                state.setProperty(STATE_WATERMARK, newest);
+            snapshot.commit();
+            context.getErr().println("Synced " + changed + " changed buckets (" + unchanged + " unchanged, "
+                    + snapshot.size() + " in snapshot), watermark " + newest);
+            return 0;
+        }
+    }
+
+    /**
+     * Queries a snapshot: buckets by ID, or a page of the buckets matching the filters (every page with
+     * <code>--all</code>), printed as the API would return them.
+     */
+    private int query(Context context) throws Exception {
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(context.getOut(), context.getOut().charset()));
+        try (GoldenQuery query = GoldenQuery.open(context.resolvePath(getOption(context, OPTION_DIR)));
+             GoldenPrinter.Output output = printer.open(context, writer)) {
+            if (context.getCommandLine().hasOption(OPTION_BUCKET) || context.getCommandLine().hasOption(OPTION_IDS_FROM)) {
+                int exitCode = 0;
+                for (String id : getIds(context, OPTION_BUCKET)) {
+                    GoldenSnapshot.Entry entry = query.get(id);
+                    if (entry == null) {
+                        context.getErr().println("Error [404] '" + id + "': not found in snapshot");
+                        exitCode = exitCode == 0 ?404 :exitCode;
+                    } else {
+                        printer.print(context, output, query.read(entry));
+                    }
+                }
+                return exitCode;
+            }
+
+            int pageSize = getPageSize(context);
+            if (pageSize < 1)
+                throw new IllegalArgumentException("invalid page size '" + pageSize + "' (must be a positive integer)");
+            List<GoldenSnapshot.Entry> selected = query.select(getOption(context, OPTION_CLASSIFICATION), getOption(context, OPTION_INDEX));
+            int page = getPage(context);
+            int rows;
+            do {
+                rows = printer.print(context, output, query.page(selected, page++, pageSize));
+            } while (context.isAllPages() && rows == pageSize);
+            return 0;
+        }
+    }
+
+    /**
+     * Compares two sources with a merge join, printing a row per added or removed bucket and per changed field.
+     * Rows are printed in batches, so memory stays bounded whatever the size of the sources.
+     */
+    private int diff(Context context) throws Exception {
+        String entity = getOption(context, OPTION_ENTITY);
+        int pageSize = getIntegerOption(context, OPTION_PAGE_SIZE, BULK_PAGE_SIZE);
+        if (pageSize < 1)
+            throw new IllegalArgumentException("invalid page size '" + pageSize + "' (must be a positive integer)");
+
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(context.getOut(), context.getOut().charset()));
+        GoldenDiff diff = new GoldenDiff();
+        String leftToken = Optional.ofNullable(getOption(context, OPTION_LEFT_TOKEN)).orElse(context.getEnv(VARIABLE_LEFT_TOKEN));
+        String rightToken = Optional.ofNullable(getOption(context, OPTION_RIGHT_TOKEN)).orElse(context.getEnv(VARIABLE_RIGHT_TOKEN));
+        try (BucketSource left = BucketSource.open(context, getOption(context, OPTION_LEFT), leftToken, entity, pageSize);
+             BucketSource right = BucketSource.open(context, getOption(context, OPTION_RIGHT), rightToken, entity, pageSize);
+             GoldenPrinter.Output output = printer.open(context, writer)) {
+            DiffRows rows = new DiffRows(context, printer, output);
+            diff.diff(left, right, rows);
+            rows.flush();
+        }
+        context.getErr().println("Compared buckets: " + diff.getAdded() + " added, " + diff.getRemoved() + " removed, "
+                + diff.getChanged() + " changed, " + diff.getUnchanged() + " unchanged");
+        return 0;
+    }
+
+    /**
+     * Prints the changes of a diff in batches.
+     */
+    private static class DiffRows implements GoldenDiff.Sink {
+        private final Context context;
+        private final GoldenPrinter printer;
+        private final GoldenPrinter.Output output;
+        private JsonArray rows = new JsonArray();
+
+        DiffRows(Context context, GoldenPrinter printer, GoldenPrinter.Output output) {
+            this.context = context;
+            this.printer = printer;
+            this.output = output;
+        }
+
+        @Override
+        public void change(String id, String change, String field, JsonElement left, JsonElement right) throws IOException {
+            JsonObject row = new JsonObject();
+            row.addProperty("id", id);
+            row.addProperty("change", change);
+            row.addProperty("field", field);
+            row.add("left", left);
+            row.add("right", right);
+            rows.add(row);
+            if (rows.size() == DIFF_BATCH)
+                flush();
+        }
+
+        void flush() throws IOException {
+            if (rows.size() > 0)
+                printer.print(context, output, rows.toString());
+            rows = new JsonArray();
+        }
+    }
+
+    private static Option sourceOption(String option, String description) {
+        return Option.builder(null).longOpt(option)
+                .hasArg()
+                .argName("source")
+                .numberOfArgs(1)
+                .required(true)
+                .desc(description + ": export file, snapshot directory or API URL")
+                .build();
+    }
+
+    private static Option tokenOption(String option, String side, String variable) {
+        return Option.builder(null).longOpt(option)
+                .hasArg()
+                .argName("token")
+                .numberOfArgs(1)
+                .required(false)
+                .desc("API token for the " + side + " source when it is a URL. Default is environment variable "
+                        + variable + ", then the token of the command")
+                .build();
+    }
+
+    private String value(JsonElement bucket, String field) {
+        String value = attribute(bucket, field);
+        if (value == null)
+            throw new IllegalStateException("bucket without field '" + field + "': " + bucket);
+        return value;
+    }
+
+    private String attribute(JsonElement bucket, String field) {
+        JsonElement value = bucket.isJsonObject() ?bucket.getAsJsonObject().get(field) :null;
+        return value == null || !value.isJsonPrimitive() ?null :value.getAsString();
+    }
+
+    /**
+     * Compares watermarks: numerically if both are numbers, as text otherwise (ISO-8601 dates sort as text).
+     */
+    private int compare(String a, String b) {
+        try {
+            return new BigDecimal(a).compareTo(new BigDecimal(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+
 }
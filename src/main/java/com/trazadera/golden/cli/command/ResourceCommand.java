@@ -5,6 +5,9 @@ import com.trazadera.golden.cli.Context;
 import com.trazadera.golden.restclient.api.ResourceApi;
 import org.apache.commons.cli.Options;
 
+import java.io.IOException;
+import java.util.List;
+
 public class ResourceCommand extends BaseCommand {
 
     private CommandInfo info;
@@ -12,7 +15,9 @@ public class ResourceCommand extends BaseCommand {
     public ResourceCommand() {
         info = new CommandInfo("resource", "Manage resources");
         info.addSubcommandInfo(new SubcommandInfo("list", "List resources", EMPTY_OPTIONS));
-        info.addSubcommandInfo(new SubcommandInfo("show", "Show resource", new Options().addOption(OPTION_OBJECT_RESOURCE)));
+        info.addSubcommandInfo(new SubcommandInfo("show", "Show resources", new Options()
+                .addOption(idsOption(OPTION_RESOURCE, "Resource ID"))
+                .addOption(OPTION_OBJECT_IDS_FROM)));
     }
 
     @Override
@@ -20,12 +25,27 @@ public class ResourceCommand extends BaseCommand {
         return info;
     }
 
+    @Override
+    public long getCacheTtl(Context context) {
+        return "list".equals(context.getSubcommand()) ?METADATA_CACHE_TTL :0;
+    }
+
+    @Override
+    public List<String> getIds(Context context) throws IOException {
+        return "show".equals(context.getSubcommand()) ?getIds(context, OPTION_RESOURCE) :List.of();
+    }
+
+    @Override
+    public Call executeId(Context context, String id) throws Exception {
+        return new ResourceApi(context.getApiClient()).getResourceCall(id, null, null);
+    }
+
     @Override
     public Call execute(Context context) throws Exception {
         ResourceApi resourceApi = new ResourceApi(context.getApiClient());
         return switch (context.getSubcommand()) {
             case "list" -> resourceApi.getAllResourcesCall(null, null);
-            case "show" -> resourceApi.getResourceCall(getOption(context, OPTION_RESOURCE), null, null);
+            case "show" -> executeId(context, getIds(context).get(0));
             default -> null;
         };
     }
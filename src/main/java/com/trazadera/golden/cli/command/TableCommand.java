@@ -5,6 +5,9 @@ import com.trazadera.golden.cli.Context;
 import com.trazadera.golden.restclient.api.TableApi;
 import org.apache.commons.cli.Options;
 
+import java.io.IOException;
+import java.util.List;
+
 public class TableCommand extends BaseCommand {
 
     private CommandInfo info;
@@ -12,7 +15,9 @@ public class TableCommand extends BaseCommand {
     public TableCommand() {
         info = new CommandInfo("table", "Manage tables");
         info.addSubcommandInfo(new SubcommandInfo("list", "List tables", EMPTY_OPTIONS));
-        info.addSubcommandInfo(new SubcommandInfo("show", "Show table", new Options().addOption(OPTION_OBJECT_TABLE)));
+        info.addSubcommandInfo(new SubcommandInfo("show", "Show tables", new Options()
+                .addOption(idsOption(OPTION_TABLE, "Table ID"))
+                .addOption(OPTION_OBJECT_IDS_FROM)));
     }
 
     @Override
@@ -20,12 +25,27 @@ public class TableCommand extends BaseCommand {
         return info;
     }
 
+    @Override
+    public long getCacheTtl(Context context) {
+        return "list".equals(context.getSubcommand()) ?METADATA_CACHE_TTL :0;
+    }
+
+    @Override
+    public List<String> getIds(Context context) throws IOException {
+        return "show".equals(context.getSubcommand()) ?getIds(context, OPTION_TABLE) :List.of();
+    }
+
+    @Override
+    public Call executeId(Context context, String id) throws Exception {
+        return new TableApi(context.getApiClient()).getTableCall(id, null, null);
+    }
+
     @Override
     public Call execute(Context context) throws Exception {
         TableApi tableApi = new TableApi(context.getApiClient());
         return switch (context.getSubcommand()) {
             case "list" -> tableApi.getAllTablesCall(null, null);
-            case "show" -> tableApi.getTableCall(getOption(context, OPTION_TABLE), null, null);
+            case "show" -> executeId(context, getIds(context).get(0));
             default -> null;
         };
     }
@@ -1,16 +1,80 @@
 package com.trazadera.golden.cli.command;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.squareup.okhttp.Call;
 import com.trazadera.golden.cli.Context;
+import com.trazadera.golden.cli.GoldenFetcher;
+import com.trazadera.golden.cli.GoldenPolling;
+import com.trazadera.golden.cli.GoldenPrinter;
 import com.trazadera.golden.restclient.api.TaskApi;
+import com.trazadera.golden.restclient.invoker.ApiException;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class TaskCommand extends BaseCommand {
 
+    // Exit codes of task wait (besides 0 when every task succeeds)
+    public static final int EXIT_CODE_TASK_FAILED = 3;
+    public static final int EXIT_CODE_TIMEOUT = 4;
+    public static final int EXIT_CODE_UNKNOWN_STATUS = 5;
+    public static final int EXIT_CODE_TASK_LOST = 6;
+    public static final int EXIT_CODE_POLL_FAILED = 7;
+
+    private static final String OPTION_ALL_RUNNING = "all-running";
+    private static final String OPTION_TIMEOUT = "timeout";
+    private static final String OPTION_EXPECTED = "expected";
+    private static final Set<String> SUCCEEDED = Set.of("FINISHED", "COMPLETED", "SUCCEEDED", "SUCCESS", "DONE");
+    private static final Set<String> FAILED = Set.of("FAILED", "ERROR", "CANCELLED", "CANCELED", "ABORTED");
+    private static final Set<String> PENDING = Set.of("CREATED", "PENDING", "QUEUED", "SCHEDULED", "WAITING", "STARTED", "RUNNING", "IN_PROGRESS");
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final int WAIT_PAGE_SIZE = 100;
+    private static final long POLL_INITIAL_MS = 1_000;
+    private static final long POLL_MAX_MS = 30_000;
     private CommandInfo info;
 
     public TaskCommand() {
         info = new CommandInfo("task", "Manage tasks");
-        info.addSubcommandInfo(new SubcommandInfo("list", "List tasks", EMPTY_OPTIONS));
+        Options listOptions = new Options();
+        listOptions.addOption(OPTION_OBJECT_PAGE);
+        listOptions.addOption(OPTION_OBJECT_PAGE_SIZE);
+        info.addSubcommandInfo(new SubcommandInfo("list", "List tasks", listOptions));
+
+        // Wait
+        Options waitOptions = new Options();
+        waitOptions.addOption(idsOption(OPTION_TASK, "Task ID"));
+        waitOptions.addOption(OPTION_OBJECT_IDS_FROM);
+        waitOptions.addOption(Option.builder(null).longOpt(OPTION_ALL_RUNNING)
+                .required(false)
+                .desc("Wait for all the tasks with status " + STATUS_RUNNING + " now")
+                .build());
+        waitOptions.addOption(Option.builder(null).longOpt(OPTION_TIMEOUT)
+                .hasArg()
+                .argName("seconds")
+                .numberOfArgs(1)
+                .required(false)
+                .desc("Give up after this time (exit code " + EXIT_CODE_TIMEOUT + "). Default is no timeout.")
+                .build());
+        waitOptions.addOption(Option.builder(null).longOpt(OPTION_EXPECTED)
+                .hasArg()
+                .argName("seconds")
+                .numberOfArgs(1)
+                .required(false)
+                .desc("Expected duration, to poll faster around the expected completion")
+                .build());
+        info.addSubcommandInfo(new SubcommandInfo("wait", "Wait until tasks finish. Exit code is 0 if all of them succeed, "
+                + EXIT_CODE_TASK_FAILED + " if any fails, " + EXIT_CODE_TIMEOUT + " on timeout, " + EXIT_CODE_UNKNOWN_STATUS
+                + " on an unknown status, " + EXIT_CODE_TASK_LOST + " if a task is no longer listed and "
+                + EXIT_CODE_POLL_FAILED + " if the tasks cannot be listed", waitOptions));
     }
 
     @Override
@@ -19,19 +83,185 @@ public class TaskCommand extends BaseCommand {
     }
 
     @Override
-    public Call execute(Context context) throws Exception {
+    public boolean isPaginated(Context context) {
+        return "list".equals(context.getSubcommand());
+    }
+
+    @Override
+    public Call executePage(Context context, int page) throws Exception {
         TaskApi taskApi = new TaskApi(context.getApiClient());
+        String filterByStatus = null;
+        String sortByDate = null;
+        return taskApi.listTaskInstancesCall(page, getPageSize(context), filterByStatus, sortByDate, null, null);
+    }
+
+    @Override
+    public boolean isRunnable(Context context) {
+        return "wait".equals(context.getSubcommand());
+    }
+
+    /**
+     * Waits for tasks, polling the task list on an adaptive schedule ({@link GoldenPolling}). Status changes are
+     * reported to the error output and the final state of the tasks is printed. Waiting stops with a distinct exit
+     * code when a status is not known, when a task seen before is no longer listed or when the list fails.
+     */
+    @Override
+    public int run(Context context) throws Exception {
+        try {
+            return waitTasks(context);
+        } catch (IOException | ApiException e) {
+            context.getErr().println("Error listing tasks: " + e.getMessage());
+            return EXIT_CODE_POLL_FAILED;
+        }
+    }
+
+    @Override
+    public Call execute(Context context) throws Exception {
         return switch (context.getSubcommand()) {
-            case "list" -> {
-                int page = getIntegerOption(context, OPTION_PAGE, OPTION_DEFAULT_PAGE);
-                int pageSize = getIntegerOption(context, OPTION_PAGE_SIZE, OPTION_DEFAULT_PAGE_SIZE);
-                String filterByStatus = null;
-                String sortByDate = null;
-                yield taskApi.listTaskInstancesCall(page, pageSize, filterByStatus, sortByDate, null, null);
-            }
+            case "list" -> executePage(context, getPage(context));
             default -> null;
         };
     }
 
 
+    // Private methods
+    // =================================================================================================================
+
+    private int waitTasks(Context context) throws Exception {
+        long timeout = millis(context, OPTION_TIMEOUT);
+        GoldenPolling polling = new GoldenPolling(POLL_INITIAL_MS, POLL_MAX_MS, millis(context, OPTION_EXPECTED));
+        long started = System.currentTimeMillis();
+
+        // Tasks to wait for
+        Map<String, JsonObject> tasks = new LinkedHashMap<>();
+        if (context.getCommandLine().hasOption(OPTION_ALL_RUNNING)) {
+            for (JsonObject task : poll(context, null, STATUS_RUNNING).values()) {
+                if (!isTerminal(task))
+                    tasks.put(id(task), task);
+            }
+            if (tasks.isEmpty()) {
+                context.getErr().println("No running tasks");
+                return 0;
+            }
+        } else {
+            for (String id : getIds(context, OPTION_TASK))
+                tasks.put(id, null);
+        }
+
+        Map<String, String> reported = new LinkedHashMap<>();
+        while (true) {
+            Map<String, JsonObject> found = poll(context, tasks.keySet(), null);
+            for (String id : tasks.keySet()) {
+                JsonObject task = found.get(id);
+                if (task == null && tasks.get(id) == null)
+                    throw new IllegalArgumentException("task not found: " + id);
+                if (task == null) {
+                    print(context, tasks);
+                    context.getErr().println("Task " + id + " is no longer listed");
+                    return EXIT_CODE_TASK_LOST;
+                }
+                tasks.put(id, task);
+            }
+            long elapsed = System.currentTimeMillis() - started;
+            for (Map.Entry<String, JsonObject> e : tasks.entrySet()) {
+                String status = status(e.getValue());
+                if (!status.equals(reported.put(e.getKey(), status)))
+                    context.getErr().println("Task " + e.getKey() + ": " + status + progress(e.getValue()) + " (" + elapsed / 1000 + "s)");
+            }
+            for (Map.Entry<String, JsonObject> e : tasks.entrySet()) {
+                String status = status(e.getValue());
+                if (!isTerminal(e.getValue()) && !PENDING.contains(status)) {
+                    print(context, tasks);
+                    context.getErr().println("Task " + e.getKey() + " has an unknown status " + status);
+                    return EXIT_CODE_UNKNOWN_STATUS;
+                }
+            }
+            if (tasks.values().stream().allMatch(this::isTerminal))
+                break;
+            if (timeout > 0 && elapsed >= timeout) {
+                print(context, tasks);
+                context.getErr().println("Timeout waiting for tasks after " + elapsed / 1000 + "s");
+                return EXIT_CODE_TIMEOUT;
+            }
+            long wait = polling.next(elapsed);
+            Thread.sleep(timeout > 0 ?Math.min(wait, timeout - elapsed) :wait);
+        }
+
+        print(context, tasks);
+        return tasks.values().stream().anyMatch(t -> FAILED.contains(status(t))) ?EXIT_CODE_TASK_FAILED :0;
+    }
+
+    /**
+     * Lists tasks until all the indicated ones are found (or every task, if none is indicated).
+     * @param status Status the server filters the tasks by, or null for any.
+     * @return Tasks found, by ID.
+     */
+    private Map<String, JsonObject> poll(Context context, Set<String> ids, String status) throws Exception {
+        TaskApi taskApi = new TaskApi(context.getApiClient());
+        Map<String, JsonObject> found = new LinkedHashMap<>();
+        try (GoldenFetcher fetcher = new GoldenFetcher(context.getPrefetch())) {
+            int next = 0;
+            while (true) {
+                while (fetcher.canSubmit()) {
+                    int page = next++;
+                    fetcher.submit(() -> taskApi.listTaskInstancesCall(page, WAIT_PAGE_SIZE, status, null, null, null));
+                }
+                GoldenFetcher.Result result = fetcher.next();
+                if (!result.isSuccessful()) {
+                    throw new IOException("[" + result.getResponse().code() + "] "
+                            + result.getResponse().body().string());
+                }
+                List<JsonElement> page = pageItems(result.getBody());
+                for (JsonElement e : page) {
+                    if (e.isJsonObject() && e.getAsJsonObject().has("id"))
+                        found.put(id(e.getAsJsonObject()), e.getAsJsonObject());
+                }
+                if (page.size() < WAIT_PAGE_SIZE || (ids != null && found.keySet().containsAll(ids)))
+                    return found;
+            }
+        }
+    }
+
+    private void print(Context context, Map<String, JsonObject> tasks) throws IOException {
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        JsonArray rows = new JsonArray();
+        tasks.values().forEach(rows::add);
+        try (GoldenPrinter.Output output = printer.open(context, new BufferedWriter(new OutputStreamWriter(context.getOut(), context.getOut().charset())))) {
+            printer.print(context, output, rows.toString());
+        }
+    }
+
+    private boolean isTerminal(JsonObject task) {
+        String status = status(task);
+        return SUCCEEDED.contains(status) || FAILED.contains(status);
+    }
+
+    private String id(JsonObject task) {
+        return task.get("id").getAsString();
+    }
+
+    private String status(JsonObject task) {
+        JsonElement status = task == null ?null :task.get("status");
+        return status == null || status.isJsonNull() ?"UNKNOWN" :status.getAsString().toUpperCase();
+    }
+
+    private String progress(JsonObject task) {
+        JsonElement progress = task.get("progress");
+        return progress == null || progress.isJsonNull() ?"" :" " + progress.getAsString() + "%";
+    }
+
+    private long millis(Context context, String option) {
+        String value = getOption(context, option);
+        if (value == null)
+            return 0;
+        try {
+            long seconds = Long.parseLong(value);
+            if (seconds > 0)
+                return seconds * 1000;
+        } catch (NumberFormatException e) {
+            // invalid
+        }
+        throw new IllegalArgumentException("invalid " + option + " '" + value + "' (must be a positive number of seconds)");
+    }
+
 }
@@ -0,0 +1,44 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvWriterTest {
+
+    @Test
+    void quotesFieldsThatNeedIt() throws Exception {
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out, ";");
+        csv.writeRecord(List.of("plain", "a;b", "say \"hi\"", "two\nlines"));
+        assertEquals("plain;\"a;b\";\"say \"\"hi\"\"\";\"two\nlines\"\r\n", out.toString());
+    }
+
+    @Test
+    void formatsValues() {
+        CsvWriter csv = new CsvWriter(new StringWriter(), ",");
+        assertEquals("", csv.format(null));
+        assertEquals("42", csv.format(42.0));
+        assertEquals("1.5", csv.format(1.5));
+        assertEquals("[1,\"a\"]", csv.format(Arrays.asList(1, "a")));
+    }
+
+    @Test
+    void flattensNestedObjects() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("b", 1);
+        nested.put("c", Map.of("d", "x"));
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", "1");
+        row.put("a", nested);
+        assertEquals(List.of("id", "a.b", "a.c.d"), List.copyOf(CsvWriter.flatten(row).keySet()));
+        assertEquals("x", CsvWriter.flatten(row).get("a.c.d"));
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.trazadera.golden.cli;
+
+import com.trazadera.golden.cli.command.ExportCheckpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumesAfterTheLastPageTruncatingAPartialOne() throws Exception {
+        Path file = dir.resolve("export.gz");
+        ExportCheckpoint checkpoint = ExportCheckpoint.open(file, "e", 10, false);
+        try (FileChannel channel = checkpoint.openFile()) {
+            write(channel, "page0");
+            checkpoint.advance(channel.position(), 10);
+            write(channel, "page1");
+            checkpoint.advance(channel.position(), 3);
+            write(channel, "partial"); // interrupted before its checkpoint
+        }
+
+        ExportCheckpoint resumed = ExportCheckpoint.open(file, "e", 10, false);
+        assertEquals(2, resumed.getPage());
+        assertEquals(10, resumed.getOffset());
+        assertEquals(13, resumed.getBuckets());
+        try (FileChannel channel = resumed.openFile()) {
+            assertEquals(10, channel.position());
+            write(channel, "page2");
+        }
+        assertEquals("page0page1page2", Files.readString(file));
+    }
+
+    @Test
+    void rejectsACheckpointOfADifferentExport() throws Exception {
+        Path file = dir.resolve("export.gz");
+        ExportCheckpoint.open(file, "e", 10, false).openFile().close();
+        assertThrows(IllegalArgumentException.class, () -> ExportCheckpoint.open(file, "other", 10, false));
+        assertThrows(IllegalArgumentException.class, () -> ExportCheckpoint.open(file, "e", 20, false));
+        assertThrows(IllegalArgumentException.class, () -> ExportCheckpoint.open(file, "e", 10, true));
+        assertEquals(0, ExportCheckpoint.open(file, "e", 10, false).getPage());
+    }
+
+    @Test
+    void rejectsAFileShorterThanItsCheckpoint() throws Exception {
+        Path file = dir.resolve("export.gz");
+        ExportCheckpoint checkpoint = ExportCheckpoint.open(file, "e", 10, false);
+        try (FileChannel channel = checkpoint.openFile()) {
+            write(channel, "page0");
+            checkpoint.advance(channel.position(), 10);
+        }
+        Files.writeString(file, "page");
+        assertThrows(IllegalArgumentException.class, () -> ExportCheckpoint.open(file, "e", 10, false));
+        Files.delete(file);
+        assertThrows(IllegalArgumentException.class, () -> ExportCheckpoint.open(file, "e", 10, false));
+    }
+
+    @Test
+    void isDeletedOnceTheExportCompletes() throws Exception {
+        Path file = dir.resolve("export.gz");
+        Files.writeString(file, "previous");
+        assertThrows(IllegalArgumentException.class, () -> ExportCheckpoint.open(file, "e", 10, false));
+
+        Files.delete(file);
+        ExportCheckpoint checkpoint = ExportCheckpoint.open(file, "e", 10, false);
+        try (FileChannel channel = checkpoint.openFile()) {
+            write(channel, "page0");
+            checkpoint.advance(channel.position(), 10);
+        }
+        assertTrue(Files.exists(dir.resolve("export.gz.checkpoint")));
+        checkpoint.delete();
+        assertFalse(Files.exists(dir.resolve("export.gz.checkpoint")));
+        // A completed export is not resumed
+        assertThrows(IllegalArgumentException.class, () -> ExportCheckpoint.open(file, "e", 10, false));
+    }
+
+    private static void write(FileChannel channel, String s) throws Exception {
+        channel.write(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
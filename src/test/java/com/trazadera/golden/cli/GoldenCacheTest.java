@@ -0,0 +1,145 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenCacheTest {
+
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private final Server server = new Server();
+
+    @Test
+    void servesFreshEntriesAndRevalidatesExpiredOnes() throws Exception {
+        GoldenCache cache = new GoldenCache(dir);
+        assertEquals("body of /a", get(cache, "/a", 60));
+        assertEquals("body of /a", get(cache, "/a", 60));
+        assertEquals(1, server.requests.size());
+
+        // Expired (a TTL of zero expires everything): revalidated with the validator of the entry
+        server.body = "new body of /a";
+        assertEquals("new body of /a", get(cache, "/a", 0));
+        assertEquals(2, server.requests.size());
+        assertEquals("\"v1\"", server.requests.get(1).header("If-None-Match"));
+        assertEquals("new body of /a", get(cache, "/a", 60));
+        assertEquals(2, server.requests.size());
+    }
+
+    @Test
+    void refreshesEntriesConfirmedByNotModified() throws Exception {
+        GoldenCache cache = new GoldenCache(dir);
+        get(cache, "/a", 60);
+        age(files(".meta").get(0));
+
+        server.notModified = true;
+        assertEquals("body of /a", get(cache, "/a", 60));
+        assertEquals(2, server.requests.size());
+
+        // The 304 made the entry fresh again
+        assertEquals("body of /a", get(cache, "/a", 60));
+        assertEquals(2, server.requests.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesBeyondTheSize() throws Exception {
+        GoldenCache cache = new GoldenCache(dir);
+        server.body = "a".repeat(1000);
+        get(cache, "/a", 60);
+        Path a = files(".gz").get(0);
+        server.body = "b".repeat(1000);
+        get(cache, "/b", 60);
+        Path b = files(".gz").stream().filter(f -> !f.equals(a)).findFirst().orElseThrow();
+        Files.setLastModifiedTime(a, FileTime.fromMillis(System.currentTimeMillis() - 20_000));
+        Files.setLastModifiedTime(b, FileTime.fromMillis(System.currentTimeMillis() - 10_000));
+
+        // Reading /a makes it the most recently used, so /b is evicted to make room for /c
+        get(cache, "/a", 60);
+        long size = Files.size(a);
+        server.body = "c".repeat(1000);
+        get(cache, "/c", 60, 2 * size + size / 2);
+        assertTrue(Files.exists(a));
+        assertFalse(Files.exists(b));
+        assertEquals(2, files(".gz").size());
+        assertEquals(2, files(".meta").size());
+    }
+
+    private String get(GoldenCache cache, String path, long ttl) throws IOException {
+        return get(cache, path, ttl, MAX_BYTES);
+    }
+
+    private String get(GoldenCache cache, String path, long ttl, long maxBytes) throws IOException {
+        OkHttpClient client = new OkHttpClient();
+        client.interceptors().add(cache);
+        client.interceptors().add(server);
+        Request request = new Request.Builder().url("http://localhost" + path).header("Authorization", "Bearer t").build();
+        Response response = cache.execute(client.newCall(request), ttl, maxBytes);
+        assertEquals(200, response.code());
+        return response.body().string();
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(suffix)).toList();
+        }
+    }
+
+    // Moves the stored time of an entry an hour back
+    private void age(Path meta) throws IOException {
+        Properties entry = new Properties();
+        try (Reader in = Files.newBufferedReader(meta)) {
+            entry.load(in);
+        }
+        entry.setProperty("stored", Long.toString(System.currentTimeMillis() - 3_600_000));
+        try (Writer out = Files.newBufferedWriter(meta)) {
+            entry.store(out, null);
+        }
+    }
+
+    /**
+     * Answers every call (the last interceptor, so nothing goes to the network). The body is "body of " plus the path
+     * unless set, with ETag "v1".
+     */
+    private static class Server implements Interceptor {
+        private final List<Request> requests = new ArrayList<>();
+        private String body = null;
+        private boolean notModified = false;
+
+        @Override
+        public Response intercept(Chain chain) {
+            Request request = chain.request();
+            requests.add(request);
+            boolean revalidated = notModified && request.header("If-None-Match") != null;
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(revalidated ?304 :200)
+                    .message("")
+                    .header("ETag", "\"v1\"")
+                    .body(ResponseBody.create(null, revalidated ?"" :body != null ?body :"body of " + request.httpUrl().encodedPath()))
+                    .build();
+        }
+    }
+
+}
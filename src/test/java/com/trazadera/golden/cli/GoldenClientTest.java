@@ -0,0 +1,33 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenClientTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void passesGlobalOptionsToBatchLinesReadFromStandardInput() throws Exception {
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(dir)) {
+            snapshot.put("1", "MATCH", "a", "{\"id\":\"1\"}");
+            snapshot.commit();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context ctx = new Context()
+                .setIn(new ByteArrayInputStream(("golden query --dir " + dir + " --bucket 1\n").getBytes(StandardCharsets.UTF_8)))
+                .setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertEquals(0, new GoldenClient().execute(ctx, new String[] { "--batch", "--format", "csv" }));
+        assertEquals("id\r\n1\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.trazadera.golden.cli;
+
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenCommandsTest {
+
+    @Test
+    void commandsMatchTheirRegistration() {
+        for (String name : GoldenCommands.getInstance().getCommandNames()) {
+            Command c = GoldenCommands.getInstance().getCommand(name);
+            assertNotNull(c.info(), "Command information cannot be null: " + name);
+            assertEquals(name, c.info().getCommand());
+        }
+        assertNull(GoldenCommands.getInstance().getCommand("unknown"));
+    }
+
+    @Test
+    void instantiatesOnlyTheRequestedCommand() {
+        GoldenCommands commands = new GoldenCommands();
+        assertEquals("task", commands.getCommand("task").info().getCommand());
+        assertEquals(Set.of("task"), commands.getInstantiatedNames());
+    }
+
+    @Test
+    void commandOptionsDoNotOverlapGlobalOptions() {
+        Options globalOptions = GoldenParser.getInstance().getGlobalOptions();
+        for (Command c : GoldenCommands.getInstance().getCommands()) {
+            for (Command.SubcommandInfo sci : c.info().getSubcommandsInfo()) {
+                for (Option o : sci.getOptions().getOptions()) {
+                    assertFalse(globalOptions.hasOption(o.getOpt()) || globalOptions.hasOption(o.getLongOpt()),
+                            "Command option '" + o.getOpt() + "' or '" + o.getLongOpt() + "' of '" + c.info().getCommand()
+                                    + " " + sci.getSubcommand() + "' overlaps with global options");
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenDaemonTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void forwardsCommandLinesAndExitCodes() throws Exception {
+        Path socket = dir.resolve("golden.sock");
+        GoldenDaemon daemon = new GoldenDaemon(new GoldenClient(), socket);
+        Thread server = Thread.ofVirtual().start(() -> {
+            try {
+                daemon.serve();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        daemon.awaitListening();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            PrintStream o = new PrintStream(out, true, StandardCharsets.UTF_8);
+            PrintStream e = new PrintStream(err, true, StandardCharsets.UTF_8);
+
+            assertEquals(0, GoldenDaemon.forward(socket, new String[] { "--version" }, o, e));
+            assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("Golden Client version"));
+
+            out.reset();
+            assertEquals(1, GoldenDaemon.forward(socket, new String[] { "nonexistent", "list" }, o, e));
+            assertTrue(out.toString(StandardCharsets.UTF_8).contains("unknown command 'nonexistent'"));
+
+            assertEquals(1, GoldenDaemon.forward(socket, new String[] { "--daemon" }, o, e));
+            assertEquals(1, GoldenDaemon.forward(socket, new String[] { "--interactive" }, o, e));
+        } finally {
+            daemon.close();
+            server.join();
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    void runsForwardedCommandLinesInTheClientDirectoryWithoutStandardInput() throws Exception {
+        Path client = Files.createDirectory(dir.resolve("client"));
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(client.resolve("snapshot"))) {
+            snapshot.put("1", "MATCH", "a", "{\"id\":\"1\"}");
+            snapshot.commit();
+        }
+        Path socket = dir.resolve("golden.sock");
+        GoldenDaemon daemon = new GoldenDaemon(new GoldenClient(), socket);
+        Thread server = Thread.ofVirtual().start(() -> {
+            try {
+                daemon.serve();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        daemon.awaitListening();
+        try {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            PrintStream o = new PrintStream(out, true, StandardCharsets.UTF_8);
+            PrintStream e = new PrintStream(err, true, StandardCharsets.UTF_8);
+
+            String[] query = { "golden", "query", "--dir", "snapshot", "--bucket", "1", "--format", "csv" };
+            assertEquals(0, GoldenDaemon.forward(socket, query, client, o, e));
+            assertEquals("id\r\n1\r\n", out.toString(StandardCharsets.UTF_8));
+
+            out.reset();
+            String[] ids = { "golden", "query", "--dir", "snapshot", "--ids-from", "-" };
+            assertEquals(1, GoldenDaemon.forward(socket, ids, client, o, e));
+            assertTrue(out.toString(StandardCharsets.UTF_8).contains("standard input is not available"));
+            out.reset();
+            assertEquals(1, GoldenDaemon.forward(socket, new String[] { "--batch", "-" }, client, o, e));
+            assertTrue(out.toString(StandardCharsets.UTF_8).contains("standard input is not available"));
+        } finally {
+            daemon.close();
+            server.join();
+        }
+    }
+
+}
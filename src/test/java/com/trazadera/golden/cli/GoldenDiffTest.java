@@ -0,0 +1,45 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenDiffTest {
+
+    private static final Gson GSON = new Gson();
+
+    @Test
+    void reportsAddedRemovedAndChangedFields() throws Exception {
+        List<String> changes = new ArrayList<>();
+        GoldenDiff diff = new GoldenDiff();
+        diff.diff(source("{\"id\":\"1\",\"a\":1}", "{\"id\":\"2\",\"a\":{\"b\":[1,2]}}", "{\"id\":\"3\"}"),
+                source("{\"id\":\"2\",\"a\":{\"b\":[1,3]},\"c\":true}", "{\"id\":\"3\"}", "{\"id\":\"4\"}"),
+                (id, change, field, left, right) -> changes.add(id + " " + change + " " + field + " " + left + " " + right));
+        assertEquals(List.of(
+                "1 removed null {\"id\":\"1\",\"a\":1} null",
+                "2 changed a.b.1 2 3",
+                "2 changed c null true",
+                "4 added null null {\"id\":\"4\"}"), changes);
+        assertEquals(1, diff.getUnchanged());
+        assertEquals(1, diff.getChanged());
+    }
+
+    @Test
+    void rejectsUnsortedSources() {
+        GoldenDiff diff = new GoldenDiff();
+        assertThrows(IllegalStateException.class, () -> diff.diff(source("{\"id\":\"2\"}", "{\"id\":\"1\"}"), source(),
+                (id, change, field, left, right) -> {}));
+    }
+
+    private GoldenDiff.Source source(String... buckets) {
+        Iterator<String> it = List.of(buckets).iterator();
+        return () -> it.hasNext() ?GSON.fromJson(it.next(), JsonElement.class) :null;
+    }
+
+}
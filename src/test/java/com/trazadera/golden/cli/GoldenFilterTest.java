@@ -0,0 +1,29 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenFilterTest {
+
+    private final GoldenFilter filter = GoldenFilter.getInstance();
+
+    @Test
+    void pushesDownEqualityOnRowFields() {
+        assertEquals("DUPLICATE", filter.pushdown("$.content[?(@.classification=='DUPLICATE')]", "classification"));
+        assertEquals("DUPLICATE", filter.pushdown("$[?(@['classification'] == \"DUPLICATE\")].id", "classification"));
+        assertEquals("RUNNING", filter.pushdown("$.content[?(@.type != 'x' && (@.status == 'RUNNING'))]", "status"));
+        assertNull(filter.pushdown("$.content[?(@.classification=='DUPLICATE')]", "index"));
+    }
+
+    @Test
+    void doesNotPushDownWhatTheServerCannotEvaluate() {
+        assertNull(filter.pushdown(null, "status"));
+        assertNull(filter.pushdown("$.content[*].id", "status"));
+        assertNull(filter.pushdown("$.content[?(@.status=='RUNNING' || @.status=='FAILED')]", "status"));
+        assertNull(filter.pushdown("$.content[?(!(@.status=='RUNNING'))]", "status"));
+        assertNull(filter.pushdown("$.content[*].records[?(@.status=='RUNNING')]", "status"));
+        assertNull(filter.pushdown("$..[?(@.status=='RUNNING')]", "status"));
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenLimiterTest {
+
+    private final GoldenLimiter limiter = new GoldenLimiter();
+    private final Server server = new Server();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void spacesCallsByTheRate() throws Exception {
+        limiter.configure(20, 0);
+        for (int i = 0; i < 4; i++)
+            get("/a").body().string();
+        assertEquals(4, server.times.size());
+        // Slots are 1/rate apart, so a call that runs late shortens the gap to the next one but not the total (give or take
+        // the time the first call takes to reach the server)
+        for (int i = 1; i < 4; i++) {
+            long elapsed = server.times.get(i) - server.times.get(0);
+            assertTrue(elapsed >= i * TimeUnit.MILLISECONDS.toNanos(50) - TimeUnit.MILLISECONDS.toNanos(2), "call " + i + " is " + elapsed + " ns after the first");
+        }
+    }
+
+    @Test
+    void capsCallsInFlightUntilTheBodyIsClosed() throws Exception {
+        limiter.configure(0, 1);
+        Response first = get("/a");
+        Future<Response> second = executor.submit(() -> get("/b"));
+        assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+        first.body().close();
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).code());
+    }
+
+    @Test
+    void releasesThePermitWhenTheBodyIsExhausted() throws Exception {
+        limiter.configure(0, 1);
+        assertEquals("body of /a", get("/a").body().source().readUtf8());
+        assertReleased();
+    }
+
+    @Test
+    void releasesThePermitWhenTheCallFails() throws Exception {
+        limiter.configure(0, 1);
+        assertThrows(IOException.class, () -> get("/fail"));
+        assertReleased();
+    }
+
+    @Test
+    void fetcherReleasesThePermitOfUnreadErrorBodies() throws Exception {
+        limiter.configure(0, 1);
+        try (GoldenFetcher fetcher = new GoldenFetcher(1)) {
+            fetcher.submit(() -> call("/error"));
+            GoldenFetcher.Result result = fetcher.next();
+            assertEquals(500, result.getResponse().code());
+            assertNull(result.getBody());
+        }
+        assertReleased();
+    }
+
+    private void assertReleased() throws Exception {
+        assertEquals(200, executor.submit(() -> get("/b")).get(5, TimeUnit.SECONDS).code());
+    }
+
+    private Response get(String path) throws IOException {
+        return call(path).execute();
+    }
+
+    private Call call(String path) {
+        OkHttpClient client = new OkHttpClient();
+        client.interceptors().add(limiter);
+        client.interceptors().add(server);
+        return client.newCall(new Request.Builder().url("http://localhost" + path).build());
+    }
+
+    /**
+     * Answers every call with "body of " plus the path: fails on /fail and is a 500 on /error.
+     */
+    private static class Server implements Interceptor {
+        private final List<Long> times = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            times.add(System.nanoTime());
+            Request request = chain.request();
+            String path = request.httpUrl().encodedPath();
+            if (path.equals("/fail"))
+                throw new IOException("connection reset");
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(path.equals("/error") ?500 :200)
+                    .message("")
+                    .body(ResponseBody.create(null, "body of " + path))
+                    .build();
+        }
+    }
+
+}
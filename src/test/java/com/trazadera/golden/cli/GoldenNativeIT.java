@@ -0,0 +1,56 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Smoke test of the native executable built with the <code>native</code> profile: every registered command and
+ * subcommand must print its help.
+ */
+@EnabledIfSystemProperty(named = "golden.native.binary", matches = ".+")
+class GoldenNativeIT {
+
+    @Test
+    void versionRuns() throws Exception {
+        Run run = run(List.of("--version"));
+        assertEquals(0, run.exitCode, run.output);
+        assertTrue(run.output.startsWith("Golden Client version"), run.output);
+    }
+
+    @Test
+    void helpRunsForEveryCommand() throws Exception {
+        List<List<String>> paths = new ArrayList<>();
+        paths.add(List.of("--help"));
+        for (Command c : GoldenCommands.getInstance().getCommands()) {
+            paths.add(List.of(c.info().getCommand(), "--help"));
+            for (String subcommand : c.info().getSubcommands())
+                paths.add(List.of(c.info().getCommand(), subcommand, "--help"));
+        }
+        for (List<String> path : paths) {
+            Run run = run(path);
+            assertEquals(0, run.exitCode, path + ": " + run.output);
+            assertTrue(run.output.contains("Usage: golden"), path + ": " + run.output);
+        }
+    }
+
+    private Run run(List<String> args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("golden.native.binary"));
+        command.addAll(args);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS), "timeout running " + args);
+        return new Run(process.exitValue(), output);
+    }
+
+    private record Run(int exitCode, String output) { }
+
+}
@@ -0,0 +1,38 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenParserTest {
+
+    @Test
+    void tokenizeSplitsOnWhitespace() {
+        String[] args = GoldenParser.getInstance().tokenize("  entity   show --entity e1 ");
+        assertEquals(List.of("entity", "show", "--entity", "e1"), List.of(args));
+    }
+
+    @Test
+    void tokenizeKeepsQuotedArguments() {
+        String[] args = GoldenParser.getInstance().tokenize("golden list --filter \"$.content[?(@.a == 'x y')]\"");
+        assertEquals("$.content[?(@.a == 'x y')]", args[3]);
+        assertEquals(4, args.length);
+    }
+
+    @Test
+    void tokenizeRejectsUnclosedQuotes() {
+        assertThrows(IllegalArgumentException.class, () -> GoldenParser.getInstance().tokenize("entity list --filter '$"));
+    }
+
+    @Test
+    void parsesHyphenatedGlobalOptions() throws Exception {
+        Context ctx = new Context();
+        GoldenParser.getInstance().parseCommandLine(ctx, new String[] { "entity", "list", "--cache-ttl", "5", "--cache-size", "2" });
+        assertEquals(Long.valueOf(5), ctx.getCacheTtl());
+        assertEquals(2L, ctx.getCacheSizeMb());
+        assertEquals("list", ctx.getSubcommand());
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenPollingTest {
+
+    @Test
+    void backsOffUpToTheMaximum() {
+        GoldenPolling polling = new GoldenPolling(1000, 3000, 0);
+        assertEquals(1000, polling.next(0));
+        assertEquals(1500, polling.next(1000));
+        assertEquals(2250, polling.next(2500));
+        assertEquals(3000, polling.next(4750));
+        assertEquals(3000, polling.next(7750));
+    }
+
+    @Test
+    void pollsFasterAroundTheExpectedCompletion() {
+        GoldenPolling polling = new GoldenPolling(1000, 30000, 10000);
+        assertEquals(1000, polling.next(0));
+        assertEquals(1500, polling.next(1000));
+        assertEquals(2250, polling.next(2500));
+        assertEquals(2125, polling.next(5750));  // half the remaining time
+        assertEquals(1000, polling.next(9500));  // never below the initial interval
+        assertEquals(1000, polling.next(10500)); // overdue: back-off starts again
+        assertEquals(1500, polling.next(11500));
+    }
+
+}
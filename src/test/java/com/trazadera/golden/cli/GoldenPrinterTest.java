@@ -0,0 +1,117 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenPrinterTest {
+
+    private static final String PAGE = """
+            {"content": [
+              {"id": "1", "classification": "GOLDEN", "records": {"size": 2}},
+              {"id": "2", "classification": "DUPLICATE", "records": {"size": 3}},
+              {"id": "3", "classification": "GOLDEN", "records": {"size": "4"}}
+            ], "number": 0, "size": 10}
+            """;
+
+    @Test
+    void aggregatesTheRowsOfAPage() {
+        Context ctx = new Context().setGroupBy(List.of("classification")).setSum(List.of("records.size")).setCount(true);
+        List<Map> rows = new Gson().fromJson(GoldenPrinter.getInstance().formatOutput(ctx, PAGE), List.class);
+        assertEquals(List.of(
+                Map.of("classification", "GOLDEN", "count", 2.0, "sum(records.size)", 6.0),
+                Map.of("classification", "DUPLICATE", "count", 1.0, "sum(records.size)", 3.0)), rows);
+    }
+
+    @Test
+    void countsWithoutGroups() {
+        Context ctx = new Context().setCount(true);
+        assertEquals(List.of(Map.of("count", 3.0)), new Gson().fromJson(GoldenPrinter.getInstance().formatOutput(ctx, PAGE), List.class));
+        assertEquals(List.of(Map.of("count", 0.0)), new Gson().fromJson(GoldenPrinter.getInstance().formatOutput(ctx, "[]"), List.class));
+    }
+
+    @Test
+    void printsColumnsInRequestedOrder() {
+        Context ctx = new Context().setColumns(List.of("records.size", "id", "missing"));
+        List<Map> rows = new Gson().fromJson(GoldenPrinter.getInstance().formatOutput(ctx, PAGE), List.class);
+        assertEquals(3, rows.size());
+        assertEquals(List.of("records.size", "id"), List.copyOf(rows.get(0).keySet())); // JSON omits nulls
+        assertEquals(2.0, rows.get(0).get("records.size"));
+        assertEquals("1", rows.get(0).get("id"));
+    }
+
+    @Test
+    void skipsFieldsNotInTheColumnsWithoutDecodingThem() {
+        // Decoding a value nested this deep overflows the stack, skipping it does not
+        String deep = "[".repeat(100_000) + "]".repeat(100_000);
+        String page = "[{\"id\": \"1\", \"records\": " + deep + "}, {\"id\": \"2\", \"records\": " + deep + "}]";
+        Context ctx = new Context().setFormat(Context.GoldenFormat.CSV).setColumns(List.of("id"));
+        assertEquals("id\r\n1\r\n2", GoldenPrinter.getInstance().formatOutput(ctx, page));
+        Context all = new Context().setFormat(Context.GoldenFormat.CSV).setColumns(List.of("id", "records"));
+        assertThrows(StackOverflowError.class, () -> GoldenPrinter.getInstance().formatOutput(all, page));
+    }
+
+    @Test
+    void abortedOutputsAreNotCompleted() throws Exception {
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        StringWriter json = new StringWriter();
+        GoldenPrinter.Output output = printer.open(new Context(), json);
+        printer.print(new Context(), output, "[{\"id\": \"1\"}]");
+        output.abort();
+        assertTrue(json.toString().contains("\"1\""), json.toString());
+        assertFalse(json.toString().trim().endsWith("]"), json.toString());
+
+        Context ctx = new Context().setCount(true);
+        StringWriter count = new StringWriter();
+        output = printer.open(ctx, count);
+        printer.print(ctx, output, PAGE);
+        output.abort();
+        assertEquals("", count.toString());
+    }
+
+    @Test
+    void warnsAboutCsvColumnsMissingFromTheHeader() throws Exception {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Context ctx = new Context().setFormat(Context.GoldenFormat.CSV).setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        StringWriter out = new StringWriter();
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        try (GoldenPrinter.Output output = printer.open(ctx, out)) {
+            printer.print(ctx, output, "[{\"id\": \"1\"}]");
+            printer.print(ctx, output, "[{\"id\": \"2\", \"extra\": \"x\"}, {\"id\": \"3\", \"extra\": \"y\"}]");
+        }
+        assertEquals("id\r\n1\r\n2\r\n3\r\n", out.toString());
+        String warnings = err.toString(StandardCharsets.UTF_8);
+        assertTrue(warnings.contains("'extra'"), warnings);
+        assertEquals(1, warnings.lines().count());
+    }
+
+    @Test
+    void mergesTheRowsOfSeveralResultsIntoOnePage() throws Exception {
+        String[] results = { "{\"id\": \"1\", \"name\": \"a\"}", "{\"id\": \"2\", \"name\": \"b\", \"email\": \"b@x\"}" };
+        assertEquals("id;name;email\r\n1;a;\r\n2;b;b@x\r\n", printRows(Context.GoldenFormat.CSV, results));
+        String table = printRows(Context.GoldenFormat.TABLE, results);
+        assertEquals(1, table.split("email", -1).length - 1, table);
+    }
+
+    private String printRows(Context.GoldenFormat format, String... results) throws Exception {
+        Context ctx = new Context().setFormat(format);
+        StringWriter out = new StringWriter();
+        GoldenPrinter printer = GoldenPrinter.getInstance();
+        try (GoldenPrinter.Output output = printer.open(ctx, out)) {
+            for (String result : results)
+                printer.printRows(ctx, output, new ByteArrayInputStream(result.getBytes(StandardCharsets.UTF_8)));
+            output.endPage();
+        }
+        return out.toString();
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenQueryTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void snapshot() throws Exception {
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(dir)) {
+            snapshot.put("3", "MATCH", "a", "{\"id\":\"3\"}");
+            snapshot.put("1", "MATCH", "b", "{\"id\":\"1\"}");
+            snapshot.put("2", "NO_MATCH", "a", "{\"id\":\"2\"}");
+            snapshot.put("1", "MATCH", "a", "{\"id\":\"1\",\"v\":2}");
+            snapshot.commit();
+        }
+    }
+
+    @Test
+    void selectsBySecondaryIndexesInIdOrder() throws Exception {
+        try (GoldenQuery query = GoldenQuery.open(dir)) {
+            assertEquals(List.of("1", "3"), ids(query.select("MATCH", null)));
+            assertEquals(List.of("1", "2", "3"), ids(query.select(null, "a")));
+            assertEquals(List.of("2"), ids(query.select("NO_MATCH", "a")));
+            assertEquals(List.of(), ids(query.select("NO_MATCH", "b")));
+        }
+    }
+
+    @Test
+    void streamsPagesAsTheApi() throws Exception {
+        try (GoldenQuery query = GoldenQuery.open(dir)) {
+            assertEquals("{\"content\":[{\"id\":\"3\"}],\"number\":1,\"size\":2,\"numberOfElements\":1,\"totalElements\":3,\"totalPages\":2}",
+                    text(query.page(query.select(null, null), 1, 2)));
+            assertEquals("{\"id\":\"1\",\"v\":2}", text(query.read(query.get("1"))));
+        }
+    }
+
+    @Test
+    void findsBucketsInTheMappedIndex() throws Exception {
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(dir)) {
+            for (int i = 0; i < 1000; i++)
+                snapshot.put("b" + i, i % 2 == 0 ?"MATCH" :null, null, "{\"id\":\"b" + i + "\"}");
+            snapshot.put("ñ", null, "a", "{\"id\":\"ñ\"}");
+            snapshot.commit();
+        }
+        try (GoldenQuery query = GoldenQuery.open(dir)) {
+            assertEquals("{\"id\":\"b517\"}", text(query.read(query.get("b517"))));
+            assertEquals("MATCH", query.get("b998").classification());
+            assertEquals("a", query.get("ñ").index());
+            assertNull(query.get("b1000"));
+            assertNull(query.get("0"));
+            assertEquals(502, query.select("MATCH", null).size());
+            assertEquals(List.of("1", "2", "3", "ñ"), ids(query.select(null, "a")));
+            assertEquals(List.of(), query.select("UNKNOWN", null));
+        }
+    }
+
+    private List<String> ids(List<GoldenSnapshot.Entry> entries) {
+        return entries.stream().map(GoldenSnapshot.Entry::id).toList();
+    }
+
+    private String text(InputStream in) throws Exception {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void skipsUnchangedBucketsAndKeepsTheLatestVersion() throws Exception {
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(dir)) {
+            assertTrue(snapshot.put("1", null, null, "{\"id\":\"1\",\"v\":1}"));
+            assertTrue(snapshot.put("2", null, null, "{\"id\":\"2\",\"v\":1}"));
+            assertFalse(snapshot.put("1", null, null, "{\"id\":\"1\",\"v\":1}"));
+            assertTrue(snapshot.put("1", null, null, "{\"id\":\"1\",\"v\":2}"));
+            snapshot.getState().setProperty("watermark", "2024-05-10");
+            snapshot.commit();
+        }
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(dir)) {
+            assertEquals(2, snapshot.size());
+            assertEquals("{\"id\":\"1\",\"v\":2}", snapshot.read(snapshot.get("1")));
+            assertEquals("2024-05-10", snapshot.getState().getProperty("watermark"));
+        }
+    }
+
+    @Test
+    void discardsUncommittedRecords() throws Exception {
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(dir)) {
+            snapshot.put("1", null, null, "{\"id\":\"1\"}");
+            snapshot.commit();
+            snapshot.put("2", null, null, "{\"id\":\"2\"}");
+        }
+        try (GoldenSnapshot snapshot = GoldenSnapshot.open(dir)) {
+            assertEquals(1, snapshot.size());
+            assertNull(snapshot.get("2"));
+            assertEquals(snapshot.get("1").length() + 1, Files.size(snapshot.getRecords()));
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenSortTest {
+
+    @Test
+    void sortsInMemoryWithNullsLast() throws IOException {
+        try (GoldenSort sort = new GoldenSort(List.of("size:desc", "id"), 1024 * 1024)) {
+            sort.add(row("a", 1));
+            sort.add(row("b", null));
+            sort.add(row("c", 10));
+            sort.add(row("d", 1));
+            assertEquals(List.of("c", "a", "d", "b"), ids(sort));
+            assertEquals(0, sort.getRuns());
+        }
+    }
+
+    @Test
+    void spillsRunsAndMergesThemStably() throws IOException {
+        try (GoldenSort sort = new GoldenSort(List.of("size"), 1)) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++)
+                sort.add(row(String.valueOf(i), (200 - i) % 3));
+            for (int size = 0; size < 3; size++) {
+                for (int i = 0; i < 200; i++) {
+                    if ((200 - i) % 3 == size)
+                        expected.add(String.valueOf(i));
+                }
+            }
+            assertEquals(200, sort.getRuns());
+            assertEquals(expected, ids(sort));
+        }
+    }
+
+    @Test
+    void sortsNumbersBeforeTextInBothDirections() throws IOException {
+        // Compared as text when either is text, 10 < "5" < 9 < 10 would not be an order
+        Object[] sizes = { "5", 10, null, 9, "b" };
+        for (long budget : new long[] { 1024 * 1024, 1 }) {
+            try (GoldenSort sort = new GoldenSort(List.of("size"), budget)) {
+                for (int i = 0; i < sizes.length; i++)
+                    sort.add(row(String.valueOf(i), sizes[i]));
+                assertEquals(List.of("3", "1", "0", "4", "2"), ids(sort));
+            }
+            try (GoldenSort sort = new GoldenSort(List.of("size:desc"), budget)) {
+                for (int i = 0; i < sizes.length; i++)
+                    sort.add(row(String.valueOf(i), sizes[i]));
+                assertEquals(List.of("1", "3", "4", "0", "2"), ids(sort));
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> new GoldenSort(List.of("size:down"), 1024));
+    }
+
+    private static Map<String, Object> row(String id, Object size) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("size", size);
+        return row;
+    }
+
+    private static List<String> ids(GoldenSort sort) throws IOException {
+        List<String> ids = new ArrayList<>();
+        sort.forEach(row -> ids.add((String) row.get("id")));
+        return ids;
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.trazadera.golden.cli;
+
+import com.google.gson.Gson;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenTimingsTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void detach() {
+        Context.detach();
+    }
+
+    @Test
+    void writesOneTraceEventPerHttpCall() throws Exception {
+        Path trace = dir.resolve("trace.json");
+        GoldenTimings timings = new GoldenTimings(false, trace);
+        new Context().setTimings(timings).attach();
+        long start = timings.now();
+        assertEquals("body of /a", get("/a"));
+        assertEquals("body of /bb", get("/bb"));
+        timings.span(GoldenTimings.RENDER, timings.now());
+        timings.finish(new PrintStream(new ByteArrayOutputStream()), start);
+
+        Map json = new Gson().fromJson(Files.readString(trace), Map.class);
+        assertEquals("ms", json.get("displayTimeUnit"));
+        List<Map> events = (List<Map>) json.get("traceEvents");
+        for (Map e : events) {
+            assertEquals("X", e.get("ph"));
+            assertTrue(((Number) e.get("ts")).doubleValue() >= 0);
+            assertTrue(((Number) e.get("dur")).doubleValue() >= 0);
+            assertNotNull(e.get("pid"));
+            assertNotNull(e.get("tid"));
+        }
+        List<Map> http = events.stream().filter(e -> GoldenTimings.HTTP.equals(e.get("cat"))).toList();
+        assertEquals(List.of("GET /a", "GET /bb"), http.stream().map(e -> e.get("name")).toList());
+        assertEquals(10.0, ((Map) http.get(0).get("args")).get("bytes"));
+        assertEquals(200.0, ((Map) http.get(1).get("args")).get("status"));
+        Map command = events.stream().filter(e -> "command".equals(e.get("cat"))).findFirst().orElseThrow();
+        assertEquals(2.0, ((Map) command.get("args")).get("http calls"));
+        assertEquals(1, events.stream().filter(e -> GoldenTimings.RENDER.equals(e.get("name"))).count());
+    }
+
+    @Test
+    void disabledRecorderNeverReadsTheClock() throws Exception {
+        AtomicLong reads = new AtomicLong();
+        GoldenTimings timings = new GoldenTimings(false, true, dir.resolve("trace.json"), reads::incrementAndGet);
+        new Context().setTimings(timings).attach();
+        long start = timings.now();
+        timings.jvmStartup(start);
+        timings.span(GoldenTimings.PARSE, start);
+        timings.add(GoldenTimings.RENDER, start);
+        timings.add(GoldenTimings.JSON, start, timings.downloaded());
+        timings.event("retry", "http", start, null);
+        timings.count("retries", 1);
+        assertEquals("body of /a", get("/a"));
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        timings.finish(new PrintStream(err), start);
+
+        assertEquals(0, reads.get());
+        assertEquals(0, err.size());
+        assertFalse(Files.exists(dir.resolve("trace.json")));
+    }
+
+    private static String get(String path) throws IOException {
+        OkHttpClient client = new OkHttpClient();
+        client.interceptors().add(new GoldenTimings.HttpInterceptor());
+        client.interceptors().add(new Server());
+        Request request = new Request.Builder().url("http://localhost" + path).build();
+        return client.newCall(request).execute().body().string();
+    }
+
+    /**
+     * Answers every call with "body of " plus the path.
+     */
+    private static class Server implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) {
+            Request request = chain.request();
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("")
+                    .body(ResponseBody.create(null, "body of " + request.httpUrl().encodedPath()))
+                    .build();
+        }
+    }
+
+}
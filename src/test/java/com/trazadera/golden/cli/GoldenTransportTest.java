@@ -0,0 +1,80 @@
+package com.trazadera.golden.cli;
+
+import com.squareup.okhttp.Connection;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenTransportTest {
+
+    @AfterEach
+    void detach() {
+        Context.detach();
+    }
+
+    @Test
+    void retriesRetryableStatusesUntilSuccess() throws Exception {
+        new Context().setRetries(3).attach();
+        List<Integer> codes = new ArrayList<>(List.of(503, 429, 200));
+        Response response = new GoldenTransport().intercept(chain("GET", codes));
+        assertEquals(200, response.code());
+        assertTrue(codes.isEmpty());
+    }
+
+    @Test
+    void returnsTheLastFailureWhenRetriesAreExhausted() throws Exception {
+        new Context().setRetries(1).attach();
+        List<Integer> codes = new ArrayList<>(List.of(503, 502, 200));
+        Response response = new GoldenTransport().intercept(chain("GET", codes));
+        assertEquals(502, response.code());
+        assertEquals(List.of(200), codes);
+    }
+
+    @Test
+    void retriesReadCallsOnly() throws Exception {
+        new Context().setRetries(3).attach();
+        List<Integer> codes = new ArrayList<>(List.of(503, 200));
+        Response response = new GoldenTransport().intercept(chain("DELETE", codes));
+        assertEquals(503, response.code());
+        assertEquals(List.of(200), codes);
+    }
+
+    // Responses with indicated codes, one per call. Retry-After 0 leaves just the jittered backoff (under a second)
+    private Interceptor.Chain chain(String method, List<Integer> codes) {
+        Request request = new Request.Builder().url("http://localhost/api/entity").method(method, null).build();
+        return new Interceptor.Chain() {
+            @Override
+            public Request request() {
+                return request;
+            }
+
+            @Override
+            public Response proceed(Request r) throws IOException {
+                return new Response.Builder()
+                        .request(r)
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(codes.remove(0))
+                        .message("")
+                        .header("Retry-After", "0")
+                        .body(ResponseBody.create(null, ""))
+                        .build();
+            }
+
+            @Override
+            public Connection connection() {
+                return null;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.trazadera.golden.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoldenWatchTest {
+
+    @Test
+    void reportsRowsAddedChangedAndRemovedById() {
+        GoldenWatch.Session session = new GoldenWatch.Session();
+        Map a = Map.of("id", "a", "status", "RUNNING");
+        Map b = Map.of("id", "b", "status", "RUNNING");
+        Map c = Map.of("id", "c", "status", "RUNNING");
+        assertEquals(List.of(a, b), session.changes(List.of(a, b)));
+        assertEquals(List.of(), session.getRemoved());
+
+        Map b2 = Map.of("id", "b", "status", "FINISHED");
+        assertEquals(List.of(c, b2), session.changes(List.of(c, b2)));
+        assertEquals(List.of("a"), session.getRemoved());
+
+        assertEquals(List.of(), session.changes(List.of(b2, c)));
+        assertEquals(List.of(), session.getRemoved());
+    }
+
+    @Test
+    void matchesRowsWithoutIdByContent() {
+        GoldenWatch.Session session = new GoldenWatch.Session();
+        Map x = Map.of("value", 1);
+        Map y = Map.of("value", 2);
+        session.changes(List.of(x));
+        assertEquals(List.of(y), session.changes(List.of(y)));
+        assertEquals(List.of(x), session.getRemoved());
+    }
+
+}